@@ -1,5 +1,8 @@
 package com.agro.demo.config;
 
+import com.agro.demo.repository.UserRepository;
+import com.agro.demo.security.JwtAuthenticationFilter;
+import com.agro.demo.security.JwtPrincipalResolver;
 import com.agro.demo.security.JwtUtil;
 import com.agro.demo.service.CustomOAuth2UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +17,7 @@ import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -33,6 +37,12 @@ public class OAuth2Config {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private JwtPrincipalResolver jwtPrincipalResolver;
+
+    @Autowired
+    private UserRepository userRepository;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -42,7 +52,11 @@ public class OAuth2Config {
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             )
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/**", "/oauth2/**", "/login/**").permitAll()
+                // Meters expose cache sizes, queue depths and per-endpoint timings
+                .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
+                .requestMatchers("/api/**", "/oauth2/**", "/login/**", "/actuator/health").permitAll()
+                // The handshake is open; STOMP CONNECT carries and checks the JWT
+                .requestMatchers("/ws/**").permitAll()
                 .anyRequest().authenticated()
             )
             .oauth2Login(oauth2 -> oauth2
@@ -55,6 +69,7 @@ public class OAuth2Config {
                     .baseUri("/oauth2/callback/*")
                 )
             )
+            .addFilterBefore(new JwtAuthenticationFilter(jwtPrincipalResolver), UsernamePasswordAuthenticationFilter.class)
             .formLogin(form -> form.disable())
             .httpBasic(basic -> basic.disable());
 
@@ -66,7 +81,9 @@ public class OAuth2Config {
         return (request, response, authentication) -> {
             OAuth2User oAuth2User = (OAuth2User) authentication.getPrincipal();
             String email = oAuth2User.getAttribute("email");
-            String token = jwtUtil.generateToken(email);
+            String token = userRepository.findByEmail(email)
+                .map(jwtUtil::generateToken)
+                .orElseGet(() -> jwtUtil.generateToken(email));
             String redirectUrl = String.format("http://localhost:5173/oauth2/callback?token=%s", token);
             response.sendRedirect(redirectUrl);
         };
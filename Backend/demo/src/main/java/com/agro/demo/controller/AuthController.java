@@ -3,6 +3,7 @@ package com.agro.demo.controller;
 import com.agro.demo.model.User;
 import com.agro.demo.repository.UserRepository;
 import com.agro.demo.security.JwtUtil;
+import com.agro.demo.service.UserSuggestionIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -25,6 +26,9 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private UserSuggestionIndex userSuggestionIndex;
+
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@RequestBody Map<String, String> request) {
         // Check if user exists
@@ -40,6 +44,7 @@ public class AuthController {
         user.setPassword(passwordEncoder.encode(request.get("password")));
         user.setProvider("local");
         userRepository.save(user);
+        userSuggestionIndex.index(user);
 
         return ResponseEntity.ok("User registered successfully");
     }
@@ -57,7 +62,7 @@ public class AuthController {
         }
 
         // Generate JWT token
-        String token = jwtUtil.generateToken(user.getEmail());
+        String token = jwtUtil.generateToken(user);
 
         // Create response with token and user details
         Map<String, Object> response = new HashMap<>();
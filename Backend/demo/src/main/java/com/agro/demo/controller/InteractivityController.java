@@ -2,16 +2,16 @@ package com.agro.demo.controller;
 
 import com.agro.demo.model.*;
 import com.agro.demo.service.InteractivityService;
-import com.agro.demo.security.JwtUtil;
-import com.agro.demo.repository.UserRepository;
+import com.agro.demo.service.ViewerStateService;
+import com.agro.demo.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpStatus;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/interactivity")
@@ -22,27 +22,23 @@ public class InteractivityController {
     private InteractivityService interactivityService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private ViewerStateService viewerStateService;
 
-    @Autowired
-    private UserRepository userRepository;
-
-    private String getUserIdFromToken(String token) {
-        String email = jwtUtil.getEmailFromToken(token);
-        Optional<User> user = userRepository.findByEmail(email);
-        if (!user.isPresent()) {
+    // Resolved once per request by JwtAuthenticationFilter
+    private String getUserId(AuthenticatedUser currentUser) {
+        if (currentUser == null) {
             throw new IllegalArgumentException("User not found");
         }
-        return user.get().getId();
+        return currentUser.getId();
     }
 
     // Like endpoints
     @PostMapping("/likes/{postId}")
     public ResponseEntity<?> toggleLike(
             @PathVariable String postId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             Like like = interactivityService.toggleLike(postId, userId);
             return ResponseEntity.ok(like);
         } catch (Exception e) {
@@ -65,9 +61,9 @@ public class InteractivityController {
     @GetMapping("/likes/{postId}/status")
     public ResponseEntity<?> hasUserLiked(
             @PathVariable String postId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             boolean hasLiked = interactivityService.hasUserLiked(postId, userId);
             return ResponseEntity.ok(Map.of("hasLiked", hasLiked));
         } catch (Exception e) {
@@ -76,14 +72,32 @@ public class InteractivityController {
         }
     }
 
+    // Liked/saved flags for a whole page of posts in one call
+    @PostMapping("/viewer-state")
+    public ResponseEntity<?> getViewerState(
+            @RequestBody Map<String, List<String>> request,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        try {
+            String userId = getUserId(currentUser);
+            List<String> postIds = request.get("postIds");
+            if (postIds == null) {
+                return ResponseEntity.badRequest().body("postIds is required");
+            }
+            return ResponseEntity.ok(viewerStateService.getViewerState(userId, postIds));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error getting viewer state: " + e.getMessage());
+        }
+    }
+
     // Comment endpoints
     @PostMapping("/comments/{postId}")
     public ResponseEntity<?> addComment(
             @PathVariable String postId,
             @RequestBody Map<String, String> request,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             String content = request.get("content");
             String parentCommentId = request.get("parentCommentId");
             Comment comment = interactivityService.addComment(postId, userId, content, parentCommentId);
@@ -98,9 +112,9 @@ public class InteractivityController {
     public ResponseEntity<?> updateComment(
             @PathVariable String commentId,
             @RequestBody Map<String, String> request,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             String content = request.get("content");
             Comment comment = interactivityService.updateComment(commentId, userId, content);
             return ResponseEntity.ok(comment);
@@ -116,9 +130,9 @@ public class InteractivityController {
     @DeleteMapping("/comments/{commentId}")
     public ResponseEntity<?> deleteComment(
             @PathVariable String commentId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             interactivityService.deleteComment(commentId, userId);
             return ResponseEntity.ok().build();
         } catch (IllegalArgumentException e) {
@@ -144,9 +158,9 @@ public class InteractivityController {
     @PostMapping("/comments/{commentId}/like")
     public ResponseEntity<?> toggleCommentLike(
             @PathVariable String commentId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             Comment comment = interactivityService.toggleCommentLike(commentId, userId);
             return ResponseEntity.ok(comment);
         } catch (Exception e) {
@@ -169,9 +183,9 @@ public class InteractivityController {
     // Notification endpoints
     @GetMapping("/notifications")
     public ResponseEntity<?> getNotifications(
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             List<Notification> notifications = interactivityService.getUserNotifications(userId);
             return ResponseEntity.ok(notifications);
         } catch (Exception e) {
@@ -182,9 +196,9 @@ public class InteractivityController {
 
     @GetMapping("/notifications/unread")
     public ResponseEntity<?> getUnreadNotifications(
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             List<Notification> notifications = interactivityService.getUnreadNotifications(userId);
             return ResponseEntity.ok(notifications);
         } catch (Exception e) {
@@ -196,9 +210,9 @@ public class InteractivityController {
     @PutMapping("/notifications/{notificationId}/read")
     public ResponseEntity<?> markNotificationAsRead(
             @PathVariable String notificationId,
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             interactivityService.markNotificationAsRead(notificationId, userId);
             return ResponseEntity.ok().build();
         } catch (IllegalArgumentException e) {
@@ -212,9 +226,9 @@ public class InteractivityController {
 
     @PutMapping("/notifications/read-all")
     public ResponseEntity<?> markAllNotificationsAsRead(
-            @RequestHeader("Authorization") String token) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            String userId = getUserIdFromToken(token.replace("Bearer ", ""));
+            String userId = getUserId(currentUser);
             interactivityService.markAllNotificationsAsRead(userId);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
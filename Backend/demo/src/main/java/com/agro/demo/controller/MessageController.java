@@ -1,21 +1,34 @@
 package com.agro.demo.controller;
 
+import com.agro.demo.model.Conversation;
+import com.agro.demo.model.CursorSlice;
 import com.agro.demo.model.Message;
-import com.agro.demo.model.User;
+import com.agro.demo.model.UserSummary;
 import com.agro.demo.repository.MessageRepository;
 import com.agro.demo.repository.UserRepository;
-import com.agro.demo.security.JwtUtil;
+import com.agro.demo.security.AuthenticatedUser;
+import com.agro.demo.service.ConversationService;
+import com.agro.demo.service.MessagePushService;
+import com.agro.demo.service.MessageSearchIndex;
+import com.agro.demo.service.PresenceService;
+import com.agro.demo.service.UserDirectory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -26,22 +39,29 @@ public class MessageController {
 
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
-    private final JwtUtil jwtUtil;
-
-    public MessageController(MessageRepository messageRepository, UserRepository userRepository, JwtUtil jwtUtil) {
+    private final UserDirectory userDirectory;
+    private final ConversationService conversationService;
+    private final MessagePushService messagePushService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final PresenceService presenceService;
+
+    public MessageController(MessageRepository messageRepository, UserRepository userRepository,
+                             UserDirectory userDirectory, ConversationService conversationService,
+                             MessagePushService messagePushService, MessageSearchIndex messageSearchIndex,
+                             PresenceService presenceService) {
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
-        this.jwtUtil = jwtUtil;
+        this.userDirectory = userDirectory;
+        this.conversationService = conversationService;
+        this.messagePushService = messagePushService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.presenceService = presenceService;
     }
 
     @PostMapping("/send")
-    public ResponseEntity<?> sendMessage(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> sendMessage(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                         @RequestBody Map<String, String> request) {
-        String token = authHeader.replace("Bearer ", "");
-        String senderEmail = jwtUtil.getEmailFromToken(token);
-
-        Optional<User> senderOptional = userRepository.findByEmail(senderEmail);
-        if (!senderOptional.isPresent()) {
+        if (currentUser == null) {
             return ResponseEntity.badRequest().body("Sender not found");
         }
 
@@ -52,75 +72,150 @@ public class MessageController {
             return ResponseEntity.badRequest().body("Receiver ID and content are required");
         }
 
-        Optional<User> receiverOptional = userRepository.findById(receiverId);
-        if (!receiverOptional.isPresent()) {
+        if (!userRepository.existsById(receiverId)) {
             return ResponseEntity.badRequest().body("Receiver not found");
         }
 
-        Message message = new Message(senderOptional.get().getId(), receiverId, content);
+        Message message = new Message(currentUser.getId(), receiverId, content);
         messageRepository.save(message);
+        conversationService.onMessageSent(message);
+        messagePushService.messageCreated(message);
+        messageSearchIndex.index(message);
 
-        logger.info("Message sent from {} to {}", senderEmail, receiverId);
+        logger.info("Message sent from {} to {}", currentUser.getEmail(), receiverId);
         return ResponseEntity.ok("Message sent successfully");
     }
 
     @GetMapping("/conversation/{userId}")
-    public ResponseEntity<?> getConversation(@RequestHeader("Authorization") String authHeader,
-                                           @PathVariable String userId) {
-        String token = authHeader.replace("Bearer ", "");
-        String currentUserEmail = jwtUtil.getEmailFromToken(token);
-
-        Optional<User> currentUserOptional = userRepository.findByEmail(currentUserEmail);
-        if (!currentUserOptional.isPresent()) {
+    public ResponseEntity<?> getConversation(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                           @PathVariable String userId,
+                                           @RequestParam(required = false) String before,
+                                           @RequestParam(defaultValue = "50") int size) {
+        if (currentUser == null) {
             return ResponseEntity.badRequest().body("User not found");
         }
 
-        String currentUserId = currentUserOptional.get().getId();
-        List<Message> messages = messageRepository.findBySenderIdAndReceiverId(currentUserId, userId);
-        messages.addAll(messageRepository.findBySenderIdAndReceiverId(userId, currentUserId));
-
-        // Create a map to store user details
-        Map<String, User> userDetails = new HashMap<>();
-        
-        // Add current user details
-        userDetails.put(currentUserId, currentUserOptional.get());
-        
-        // Add other user details
-        Optional<User> otherUserOptional = userRepository.findById(userId);
-        if (otherUserOptional.isPresent()) {
-            userDetails.put(userId, otherUserOptional.get());
+        String currentUserId = currentUser.getId();
+        CursorSlice<Message> history;
+        try {
+            // Newest messages first; pass nextCursor as before to load older ones
+            history = conversationService.getHistory(currentUserId, userId, before, Math.min(size, 200));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
 
+        // Load both participants in one lookup
+        Map<String, UserSummary> userDetails = userDirectory.getMany(List.of(currentUserId, userId));
+
         // Create response with messages and user details
         Map<String, Object> response = new HashMap<>();
-        response.put("messages", messages);
+        response.put("messages", history.getContent());
+        response.put("hasMore", history.isHasNext());
+        response.put("nextCursor", history.getNextCursor());
         response.put("userDetails", userDetails);
 
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping("/unread/count")
-    public ResponseEntity<?> getUnreadCount(@RequestHeader("Authorization") String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-        String currentUserEmail = jwtUtil.getEmailFromToken(token);
+    // Full-text search over the caller's messages; supports "phrases" and prefix*
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMessages(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                            @RequestParam String q,
+                                            @RequestParam(required = false) String withUser,
+                                            @RequestParam(defaultValue = "0") int page,
+                                            @RequestParam(defaultValue = "20") int size) {
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+
+        try {
+            MessageSearchIndex.SearchResult result =
+                messageSearchIndex.search(currentUser.getId(), q, withUser, page, Math.min(size, 100));
+            Map<String, Object> response = new HashMap<>();
+            response.put("hits", result.getHits());
+            response.put("totalHits", result.getTotalHits());
+            response.put("page", page);
+            response.put("size", size);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Online / last-seen for a batch of users; the caller then gets PRESENCE pushes for them
+    @GetMapping("/presence")
+    public ResponseEntity<?> getPresence(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                         @RequestParam List<String> ids) {
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("presence", presenceService.getPresence(currentUser.getId(), ids));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // For clients without a WebSocket; an open STOMP session keeps the user online by itself
+    @PostMapping("/presence/heartbeat")
+    public ResponseEntity<?> presenceHeartbeat(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+
+        presenceService.heartbeat(currentUser.getId());
+        return ResponseEntity.ok().build();
+    }
+
+    // STOMP SEND to /app/typing with { "to": userId, "typing": true|false }
+    @MessageMapping("/typing")
+    public void typing(Principal principal, @Payload Map<String, Object> payload) {
+        Object to = payload.get("to");
+        if (principal == null || !(to instanceof String)) {
+            return;
+        }
+        presenceService.typing(principal.getName(), (String) to, Boolean.TRUE.equals(payload.get("typing")));
+    }
 
-        Optional<User> currentUserOptional = userRepository.findByEmail(currentUserEmail);
-        if (!currentUserOptional.isPresent()) {
+    @GetMapping("/unread/count")
+    public ResponseEntity<?> getUnreadCount(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (currentUser == null) {
             return ResponseEntity.badRequest().body("User not found");
         }
 
-        long unreadCount = messageRepository.countByReceiverIdAndIsReadFalse(currentUserOptional.get().getId());
+        long unreadCount = conversationService.getUnreadCount(currentUser.getId());
         return ResponseEntity.ok(unreadCount);
     }
 
+    // Marks everything the other user sent up to upTo (default now) as read in one update
+    @PutMapping("/conversation/{userId}/read")
+    public ResponseEntity<?> markConversationAsRead(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                                    @PathVariable String userId,
+                                                    @RequestParam(required = false)
+                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime upTo) {
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+
+        LocalDateTime readUpTo = upTo != null ? upTo : LocalDateTime.now();
+        long marked = conversationService.markConversationRead(currentUser.getId(), userId, readUpTo);
+        if (marked > 0) {
+            messagePushService.messagesRead(currentUser.getId(), userId, readUpTo);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("marked", marked);
+        response.put("unreadCount", conversationService.getUnreadCount(currentUser.getId()));
+        return ResponseEntity.ok(response);
+    }
+
     @PutMapping("/mark-read/{messageId}")
-    public ResponseEntity<?> markMessageAsRead(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> markMessageAsRead(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                              @PathVariable String messageId) {
-        String token = authHeader.replace("Bearer ", "");
-        String currentUserEmail = jwtUtil.getEmailFromToken(token);
-
-        Optional<User> currentUserOptional = userRepository.findByEmail(currentUserEmail);
-        if (!currentUserOptional.isPresent()) {
+        if (currentUser == null) {
             return ResponseEntity.badRequest().body("User not found");
         }
 
@@ -130,63 +225,74 @@ public class MessageController {
         }
 
         Message message = messageOptional.get();
-        if (!message.getReceiverId().equals(currentUserOptional.get().getId())) {
+        if (!message.getReceiverId().equals(currentUser.getId())) {
             return ResponseEntity.badRequest().body("Unauthorized to mark this message as read");
         }
 
-        message.setRead(true);
-        messageRepository.save(message);
+        if (conversationService.markRead(message)) {
+            messagePushService.messagesRead(message.getReceiverId(), message.getSenderId(), message.getTimestamp());
+        }
 
         return ResponseEntity.ok("Message marked as read");
     }
 
     @GetMapping("/conversations")
-    public ResponseEntity<?> getAllConversations(@RequestHeader("Authorization") String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-        String currentUserEmail = jwtUtil.getEmailFromToken(token);
-
-        Optional<User> currentUserOptional = userRepository.findByEmail(currentUserEmail);
-        if (!currentUserOptional.isPresent()) {
+    public ResponseEntity<?> getAllConversations(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                                 @RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "20") int size) {
+        if (currentUser == null) {
             return ResponseEntity.badRequest().body("User not found");
         }
 
-        String currentUserId = currentUserOptional.get().getId();
-        List<Message> sentMessages = messageRepository.findBySenderId(currentUserId);
-        List<Message> receivedMessages = messageRepository.findByReceiverId(currentUserId);
+        String currentUserId = currentUser.getId();
+        Slice<Conversation> inbox;
+        try {
+            inbox = conversationService.getInbox(currentUserId, page, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
 
-        // Create a map to store user details
-        Map<String, User> userDetails = new HashMap<>();
-        
-        // Add current user details
-        userDetails.put(currentUserId, currentUserOptional.get());
-        
-        // Collect all unique user IDs from sent and received messages
-        Set<String> userIds = new HashSet<>();
-        sentMessages.forEach(msg -> userIds.add(msg.getReceiverId()));
-        receivedMessages.forEach(msg -> userIds.add(msg.getSenderId()));
-        
-        // Fetch details for all users involved in conversations
-        userIds.forEach(userId -> {
-            userRepository.findById(userId).ifPresent(user -> userDetails.put(userId, user));
-        });
+        List<String> userIds = new ArrayList<>();
+        userIds.add(currentUserId);
+        List<Map<String, Object>> conversations = new ArrayList<>();
+        for (Conversation conversation : inbox.getContent()) {
+            String otherUserId = conversation.getOtherUserId(currentUserId);
+            userIds.add(otherUserId);
+
+            Map<String, Object> lastMessage = new HashMap<>();
+            lastMessage.put("id", conversation.getLastMessageId());
+            lastMessage.put("senderId", conversation.getLastSenderId());
+            lastMessage.put("content", conversation.getLastMessageContent());
+            lastMessage.put("timestamp", conversation.getLastMessageAt());
+
+            long unreadCount = conversation.getUnreadFor(currentUserId);
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", conversation.getId());
+            entry.put("userId", otherUserId);
+            entry.put("lastMessage", lastMessage);
+            entry.put("isSent", currentUserId.equals(conversation.getLastSenderId()));
+            entry.put("unread", unreadCount > 0);
+            entry.put("unreadCount", unreadCount);
+            entry.put("messageCount", conversation.getMessageCount());
+            conversations.add(entry);
+        }
+
+        // Fetch details for everyone on this page in one lookup
+        Map<String, UserSummary> userDetails = userDirectory.getMany(userIds);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("sentMessages", sentMessages);
-        response.put("receivedMessages", receivedMessages);
+        response.put("conversations", conversations);
+        response.put("hasNext", inbox.hasNext());
         response.put("userDetails", userDetails);
 
         return ResponseEntity.ok(response);
     }
 
     @PutMapping("/update/{messageId}")
-    public ResponseEntity<?> updateMessage(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> updateMessage(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                          @PathVariable String messageId,
                                          @RequestBody Map<String, String> request) {
-        String token = authHeader.replace("Bearer ", "");
-        String currentUserEmail = jwtUtil.getEmailFromToken(token);
-
-        Optional<User> currentUserOptional = userRepository.findByEmail(currentUserEmail);
-        if (!currentUserOptional.isPresent()) {
+        if (currentUser == null) {
             return ResponseEntity.badRequest().body("User not found");
         }
 
@@ -196,7 +302,7 @@ public class MessageController {
         }
 
         Message message = messageOptional.get();
-        if (!message.getSenderId().equals(currentUserOptional.get().getId())) {
+        if (!message.getSenderId().equals(currentUser.getId())) {
             return ResponseEntity.badRequest().body("Unauthorized to update this message");
         }
 
@@ -205,21 +311,18 @@ public class MessageController {
             return ResponseEntity.badRequest().body("Content cannot be empty");
         }
 
-        message.setContent(newContent);
-        messageRepository.save(message);
+        conversationService.editMessage(message, newContent);
+        messagePushService.messageUpdated(message);
+        messageSearchIndex.update(message);
 
-        logger.info("Message {} updated by user {}", messageId, currentUserEmail);
+        logger.info("Message {} updated by user {}", messageId, currentUser.getEmail());
         return ResponseEntity.ok("Message updated successfully");
     }
 
     @DeleteMapping("/delete/{messageId}")
-    public ResponseEntity<?> deleteMessage(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> deleteMessage(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                          @PathVariable String messageId) {
-        String token = authHeader.replace("Bearer ", "");
-        String currentUserEmail = jwtUtil.getEmailFromToken(token);
-
-        Optional<User> currentUserOptional = userRepository.findByEmail(currentUserEmail);
-        if (!currentUserOptional.isPresent()) {
+        if (currentUser == null) {
             return ResponseEntity.badRequest().body("User not found");
         }
 
@@ -229,39 +332,39 @@ public class MessageController {
         }
 
         Message message = messageOptional.get();
-        String currentUserId = currentUserOptional.get().getId();
+        String currentUserId = currentUser.getId();
 
         // Allow deletion if user is either sender or receiver
         if (!message.getSenderId().equals(currentUserId) && !message.getReceiverId().equals(currentUserId)) {
             return ResponseEntity.badRequest().body("Unauthorized to delete this message");
         }
 
-        messageRepository.delete(message);
+        Message removed = conversationService.deleteMessage(messageId);
+        if (removed == null) {
+            return ResponseEntity.badRequest().body("Message not found");
+        }
+        messagePushService.messageDeleted(removed);
+        messageSearchIndex.remove(removed);
 
-        logger.info("Message {} deleted by user {}", messageId, currentUserEmail);
+        logger.info("Message {} deleted by user {}", messageId, currentUser.getEmail());
         return ResponseEntity.ok("Message deleted successfully");
     }
 
     @DeleteMapping("/delete-conversation/{userId}")
-    public ResponseEntity<?> deleteConversation(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> deleteConversation(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                               @PathVariable String userId) {
-        String token = authHeader.replace("Bearer ", "");
-        String currentUserEmail = jwtUtil.getEmailFromToken(token);
-
-        Optional<User> currentUserOptional = userRepository.findByEmail(currentUserEmail);
-        if (!currentUserOptional.isPresent()) {
+        if (currentUser == null) {
             return ResponseEntity.badRequest().body("User not found");
         }
 
-        String currentUserId = currentUserOptional.get().getId();
-        
-        // Delete all messages between the two users
-        List<Message> messagesToDelete = messageRepository.findBySenderIdAndReceiverId(currentUserId, userId);
-        messagesToDelete.addAll(messageRepository.findBySenderIdAndReceiverId(userId, currentUserId));
+        String currentUserId = currentUser.getId();
         
-        messageRepository.deleteAll(messagesToDelete);
+        // Delete all messages between the two users in one deleteMany
+        long deleted = conversationService.deleteConversation(currentUserId, userId);
+        messageSearchIndex.removeConversation(currentUserId, userId);
 
-        logger.info("Conversation between {} and {} deleted by {}", currentUserId, userId, currentUserEmail);
+        logger.info("Conversation between {} and {} deleted by {} ({} messages)",
+            currentUserId, userId, currentUser.getEmail(), deleted);
         return ResponseEntity.ok("Conversation deleted successfully");
     }
 } 
\ No newline at end of file
@@ -1,16 +1,21 @@
 package com.agro.demo.controller;
 
+import com.agro.demo.model.CursorSlice;
 import com.agro.demo.model.Post;
 import com.agro.demo.model.PostDTO;
 import com.agro.demo.model.SavedPost;
+import com.agro.demo.security.AuthenticatedUser;
 import com.agro.demo.service.PostService;
 import com.agro.demo.service.SavedPostService;
+import com.agro.demo.service.TimelineService;
+import com.agro.demo.service.TrendingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -32,6 +37,12 @@ public class PostController {
     @Autowired
     private SavedPostService savedPostService;
 
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private TrendingService trendingService;
+
     @PostMapping(consumes = {"multipart/form-data"})
     public ResponseEntity<?> createPost(
             @RequestParam("userId") String userId,
@@ -171,15 +182,35 @@ public class PostController {
         }
     }
 
+    // mode=home returns the caller's follower timeline, mode=trending the engagement ranking.
+    // For a signed-in caller each post carries likedByMe and savedByMe.
+    // Passing a cursor (empty for the first page) switches to keyset pagination
     @GetMapping("/feed")
     public ResponseEntity<?> getFeed(
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "latest") String mode) {
         
-        logger.info("Fetching feed with page: {} and size: {}", page, size);
+        logger.info("Fetching {} feed with page: {}, size: {}, cursor: {}", mode, page, size, cursor);
+        // Liked and saved state is only ever resolved for the caller
+        String viewerId = currentUser != null ? currentUser.getId() : null;
         
         try {
-            Page<PostDTO> feed = postService.getFeed(page, size);
+            if ("home".equals(mode)) {
+                List<PostDTO> feed = timelineService.getHomeTimeline(viewerId, page, size);
+                return ResponseEntity.ok(feed);
+            }
+            if ("trending".equals(mode)) {
+                List<PostDTO> feed = trendingService.getTrending(page, size, viewerId);
+                return ResponseEntity.ok(feed);
+            }
+            if (cursor != null) {
+                CursorSlice<PostDTO> feed = postService.getFeedAfter(cursor, size, viewerId);
+                return ResponseEntity.ok(feed);
+            }
+            Page<PostDTO> feed = postService.getFeed(page, size, viewerId);
             return ResponseEntity.ok(feed);
         } catch (IllegalArgumentException e) {
             logger.error("Validation error: {}", e.getMessage());
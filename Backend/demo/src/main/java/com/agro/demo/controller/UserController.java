@@ -1,17 +1,30 @@
 package com.agro.demo.controller;
 
 import com.agro.demo.model.User;
+import com.agro.demo.model.UserSummary;
 import com.agro.demo.repository.UserRepository;
-import com.agro.demo.security.JwtUtil;
+import com.agro.demo.security.AuthenticatedUser;
+import com.agro.demo.security.PrincipalCache;
 import com.agro.demo.service.CloudinaryService;
+import com.agro.demo.service.FollowService;
+import com.agro.demo.service.RecommendationService;
+import com.agro.demo.service.UserDirectory;
+import com.agro.demo.service.UserExportService;
+import com.agro.demo.service.UserSearchService;
+import com.agro.demo.service.UserSuggestionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -24,25 +37,42 @@ public class UserController {
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
     private final UserRepository userRepository;
-    private final JwtUtil jwtUtil;
+    private final PrincipalCache principalCache;
     private final CloudinaryService cloudinaryService;
-
-    public UserController(UserRepository userRepository, JwtUtil jwtUtil, CloudinaryService cloudinaryService) {
+    private final UserSearchService userSearchService;
+    private final UserSuggestionIndex userSuggestionIndex;
+    private final FollowService followService;
+    private final RecommendationService recommendationService;
+    private final UserExportService userExportService;
+    private final UserDirectory userDirectory;
+
+    public UserController(UserRepository userRepository, PrincipalCache principalCache, CloudinaryService cloudinaryService,
+                          UserSearchService userSearchService, UserSuggestionIndex userSuggestionIndex,
+                          FollowService followService, RecommendationService recommendationService,
+                          UserExportService userExportService, UserDirectory userDirectory) {
         this.userRepository = userRepository;
-        this.jwtUtil = jwtUtil;
+        this.principalCache = principalCache;
         this.cloudinaryService = cloudinaryService;
+        this.userSearchService = userSearchService;
+        this.userSuggestionIndex = userSuggestionIndex;
+        this.followService = followService;
+        this.recommendationService = recommendationService;
+        this.userExportService = userExportService;
+        this.userDirectory = userDirectory;
     }
 
     // 1. POST - Add user details
     @PostMapping("/addDetails")
-    public ResponseEntity<?> addDetails(@RequestHeader("Authorization") String authHeader,
+    public ResponseEntity<?> addDetails(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                         @RequestBody Map<String, String> request) {
-        String token = authHeader.replace("Bearer ", "");
-        String email = jwtUtil.getEmailFromToken(token);
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+        String email = currentUser.getEmail();
 
         logger.info("Adding user details for email: {}", email);
 
-        Optional<User> optionalUser = userRepository.findByEmail(email);
+        Optional<User> optionalUser = userRepository.findById(currentUser.getId());
         if (!optionalUser.isPresent()) {
             logger.error("User not found for email: {}", email);
             return ResponseEntity.badRequest().body("User not found");
@@ -50,13 +80,23 @@ public class UserController {
 
         User user = optionalUser.get();
 
+        // Only the submitted fields are written, so concurrent follower count updates survive
+        Map<String, Object> changes = new HashMap<>();
+        for (String field : List.of("about", "address", "contactNumber", "profilePhoto", "coverPhoto")) {
+            if (request.containsKey(field)) {
+                changes.put(field, request.get(field));
+            }
+        }
         user.setAbout(request.getOrDefault("about", user.getAbout()));
         user.setAddress(request.getOrDefault("address", user.getAddress()));
         user.setContactNumber(request.getOrDefault("contactNumber", user.getContactNumber()));
         user.setProfilePhoto(request.getOrDefault("profilePhoto", user.getProfilePhoto()));
         user.setCoverPhoto(request.getOrDefault("coverPhoto", user.getCoverPhoto()));
 
-        userRepository.save(user);
+        userRepository.updateFields(user.getId(), changes);
+        principalCache.evict(email);
+        userDirectory.invalidate(user.getId());
+        userSuggestionIndex.index(user);
 
         logger.info("User details added successfully for email: {}", email);
         return ResponseEntity.ok("Details added successfully");
@@ -65,7 +105,7 @@ public class UserController {
     // 2. PUT - Update user details
     @PutMapping("/update")
     public ResponseEntity<?> updateProfile(
-        @RequestHeader("Authorization") String authHeader,
+        @AuthenticationPrincipal AuthenticatedUser currentUser,
         @RequestParam(value = "firstName", required = false) String firstName,
         @RequestParam(value = "lastName", required = false) String lastName,
         @RequestParam(value = "about", required = false) String about,
@@ -74,28 +114,46 @@ public class UserController {
         @RequestParam(value = "profilePhoto", required = false) MultipartFile profilePhoto,
         @RequestParam(value = "coverPhoto", required = false) MultipartFile coverPhoto) {
         
-        String token = authHeader.replace("Bearer ", "");
-        String email = jwtUtil.getEmailFromToken(token);
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+        String email = currentUser.getEmail();
 
         logger.info("Updating user profile for email: {}", email);
 
-        Optional<User> optionalUser = userRepository.findByEmail(email);
+        Optional<User> optionalUser = userRepository.findById(currentUser.getId());
         if (!optionalUser.isPresent()) {
             logger.error("User not found for email: {}", email);
             return ResponseEntity.badRequest().body("User not found");
         }
 
         User user = optionalUser.get();
+        Map<String, Object> changes = new HashMap<>();
 
         try {
             // Update name fields
-            if (firstName != null) user.setFirstName(firstName);
-            if (lastName != null) user.setLastName(lastName);
-            
+            if (firstName != null) {
+                user.setFirstName(firstName);
+                changes.put("firstName", firstName);
+            }
+            if (lastName != null) {
+                user.setLastName(lastName);
+                changes.put("lastName", lastName);
+            }
+
             // Update other fields
-            if (about != null) user.setAbout(about);
-            if (address != null) user.setAddress(address);
-            if (contactNumber != null) user.setContactNumber(contactNumber);
+            if (about != null) {
+                user.setAbout(about);
+                changes.put("about", about);
+            }
+            if (address != null) {
+                user.setAddress(address);
+                changes.put("address", address);
+            }
+            if (contactNumber != null) {
+                user.setContactNumber(contactNumber);
+                changes.put("contactNumber", contactNumber);
+            }
 
             // Handle profile photo upload
             if (profilePhoto != null && !profilePhoto.isEmpty()) {
@@ -103,6 +161,7 @@ public class UserController {
                 List<String> urls = cloudinaryService.uploadImages(files);
                 if (!urls.isEmpty()) {
                     user.setProfilePhoto(urls.get(0));
+                    changes.put("profilePhoto", urls.get(0));
                 }
             }
 
@@ -112,10 +171,15 @@ public class UserController {
                 List<String> urls = cloudinaryService.uploadImages(files);
                 if (!urls.isEmpty()) {
                     user.setCoverPhoto(urls.get(0));
+                    changes.put("coverPhoto", urls.get(0));
                 }
             }
 
-            userRepository.save(user);
+            // Targeted $set; a full save would overwrite followerCount/followingCount
+            userRepository.updateFields(user.getId(), changes);
+            principalCache.evict(email);
+            userDirectory.invalidate(user.getId());
+            userSuggestionIndex.index(user);
 
             logger.info("User profile updated successfully");
             return ResponseEntity.ok(user);
@@ -128,13 +192,15 @@ public class UserController {
 
     // 3. GET - Get current user details
     @GetMapping("/me")
-    public ResponseEntity<?> getProfile(@RequestHeader("Authorization") String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-        String email = jwtUtil.getEmailFromToken(token);
+    public ResponseEntity<?> getProfile(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+        String email = currentUser.getEmail();
 
         logger.info("Fetching user profile for email: {}", email);
 
-        Optional<User> optionalUser = userRepository.findByEmail(email);
+        Optional<User> optionalUser = userRepository.findById(currentUser.getId());
         if (!optionalUser.isPresent()) {
             logger.error("User not found for email: {}", email);
             return ResponseEntity.badRequest().body("User not found");
@@ -145,19 +211,26 @@ public class UserController {
 
     // 4. DELETE - Delete current user
     @DeleteMapping("/delete")
-    public ResponseEntity<?> deleteUser(@RequestHeader("Authorization") String authHeader) {
-        String token = authHeader.replace("Bearer ", "");
-        String email = jwtUtil.getEmailFromToken(token);
+    public ResponseEntity<?> deleteUser(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
+        }
+        String email = currentUser.getEmail();
 
         logger.info("Deleting user with email: {}", email);
 
-        Optional<User> optionalUser = userRepository.findByEmail(email);
+        Optional<User> optionalUser = userRepository.findById(currentUser.getId());
         if (!optionalUser.isPresent()) {
             logger.error("User not found for deletion with email: {}", email);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
         }
 
+        followService.removeAllFor(currentUser.getId());
         userRepository.delete(optionalUser.get());
+        principalCache.evict(email);
+        principalCache.evictId(currentUser.getId());
+        userDirectory.invalidate(currentUser.getId());
+        userSuggestionIndex.remove(currentUser.getId());
 
         logger.info("User deleted successfully");
         return ResponseEntity.ok("User deleted successfully");
@@ -165,85 +238,182 @@ public class UserController {
 
     // 5. GET - Search users
     @GetMapping("/search")
-    public ResponseEntity<?> searchUsers(@RequestParam String query) {
-        logger.info("Searching users with query: {}", query);
+    public ResponseEntity<?> searchUsers(@RequestParam String query,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "20") int size) {
+        logger.info("Searching users with query: {}, page: {}, size: {}", query, page, size);
         
-        // Log all users in database for debugging
-        List<User> allUsers = userRepository.findAll();
-        logger.info("Total users in database: {}", allUsers.size());
-        allUsers.forEach(user -> logger.info("User: {} {} ({})", user.getFirstName(), user.getLastName(), user.getEmail()));
-        
-        // Search users by name, email, or about field
-        List<User> users = userRepository.findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCaseOrEmailContainingIgnoreCaseOrAboutContainingIgnoreCase(
-            query, query, query, query
-        );
-        
-        logger.info("Found {} users matching query: {}", users.size(), query);
-        users.forEach(user -> logger.info("Match: {} {} ({})", user.getFirstName(), user.getLastName(), user.getEmail()));
-        
-        return ResponseEntity.ok(users);
+        try {
+            // Ranked by text score over name, email and about
+            List<UserSummary> users = userSearchService.search(query, page, size);
+            logger.info("Found {} users matching query: {}", users.size(), query);
+            return ResponseEntity.ok(users);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
-    // 6. GET - Debug endpoint to list all users
-    @GetMapping("/debug/all")
-    public ResponseEntity<?> getAllUsers() {
-        logger.info("Fetching all users for debugging");
-        List<User> users = userRepository.findAll();
-        logger.info("Found {} total users", users.size());
-        return ResponseEntity.ok(users);
+    // 5b. GET - Name typeahead for the message and follow pickers
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggestUsers(@RequestParam String prefix,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userSuggestionIndex.suggest(prefix, Math.min(limit, 50)));
     }
 
+    // 5c. GET - People you may know, precomputed in the background
+    @GetMapping("/recommendations")
+    public ResponseEntity<?> getRecommendations(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+        List<RecommendationService.Recommendation> ranked =
+            recommendationService.getRecommendations(currentUser.getId(), Math.min(limit, 50));
+        return ResponseEntity.ok(recommendationService.describe(ranked));
+    }
 
+    // 5d. POST - Resolve many user IDs to display summaries in one call
+    @PostMapping("/batch")
+    public ResponseEntity<?> getUsersBatch(@RequestBody Map<String, List<String>> request) {
+        List<String> ids = request.get("ids");
+        if (ids == null || ids.isEmpty()) {
+            return ResponseEntity.badRequest().body("User IDs are required");
+        }
+        if (ids.size() > 100) {
+            return ResponseEntity.badRequest().body("At most 100 user IDs per request");
+        }
+        return ResponseEntity.ok(userDirectory.getMany(ids));
+    }
 
+    // 6. GET - Debug endpoint to list all users, streamed as a JSON array
+    // Full dump including emails, so admins only; regular clients page through /directory
+    @GetMapping("/debug/all")
+    public ResponseEntity<?> getAllUsers(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!isAdmin(currentUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin access required");
+        }
+        logger.info("Streaming all users for debugging");
+        StreamingResponseBody body = userExportService::writeJsonArray;
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
 
-@PostMapping("/follow/{targetUserId}")
-public ResponseEntity<?> followUser(@RequestHeader("Authorization") String authHeader,
-                                    @PathVariable String targetUserId) {
-    String token = authHeader.replace("Bearer ", "");
-    String email = jwtUtil.getEmailFromToken(token);
+    // Paged people directory for signed-in users; summaries carry no contact details
+    @GetMapping("/directory")
+    public ResponseEntity<?> getDirectory(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "50") int size) {
+        if (currentUser == null) {
+            return ResponseEntity.badRequest().body("User not found");
+        }
+        try {
+            return ResponseEntity.ok(userExportService.getSummaryPage(cursor, Math.min(size, 100)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
-    Optional<User> optionalCurrentUser = userRepository.findByEmail(email);
-    Optional<User> optionalTargetUser = userRepository.findById(targetUserId);
+    // 7. GET - Admin export of every user as NDJSON
+    @GetMapping("/admin/export")
+    public ResponseEntity<?> exportUsers(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        if (!isAdmin(currentUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin access required");
+        }
+        StreamingResponseBody body = userExportService::writeNdjson;
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users.ndjson\"")
+            .body(body);
+    }
 
-    if (!optionalCurrentUser.isPresent() || !optionalTargetUser.isPresent()) {
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
+    // 8. GET - Admin user list, one page at a time
+    @GetMapping("/admin/users")
+    public ResponseEntity<?> listUsers(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "50") int size) {
+        if (!isAdmin(currentUser)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin access required");
+        }
+        try {
+            return ResponseEntity.ok(userExportService.getPage(cursor, Math.min(size, 500)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static boolean isAdmin(AuthenticatedUser currentUser) {
+        return currentUser != null && currentUser.getRoles().contains("ROLE_ADMIN");
     }
 
-    User currentUser = optionalCurrentUser.get();
-    User targetUser = optionalTargetUser.get();
 
-    currentUser.getFollowing().add(targetUserId);
-    targetUser.getFollowers().add(currentUser.getId());
 
-    userRepository.save(currentUser);
-    userRepository.save(targetUser);
 
-    return ResponseEntity.ok("Followed successfully");
+@PostMapping("/follow/{targetUserId}")
+public ResponseEntity<?> followUser(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                    @PathVariable String targetUserId) {
+    if (currentUser == null) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
+    }
+
+    try {
+        // Following someone twice is a no-op
+        if (followService.follow(currentUser.getId(), targetUserId)) {
+            userSuggestionIndex.adjustFollowerCount(targetUserId, 1);
+        }
+        return ResponseEntity.ok("Followed successfully");
+    } catch (IllegalArgumentException e) {
+        if ("User not found".equals(e.getMessage())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
 
 @PostMapping("/unfollow/{targetUserId}")
-public ResponseEntity<?> unfollowUser(@RequestHeader("Authorization") String authHeader,
+public ResponseEntity<?> unfollowUser(@AuthenticationPrincipal AuthenticatedUser currentUser,
                                       @PathVariable String targetUserId) {
-    String token = authHeader.replace("Bearer ", "");
-    String email = jwtUtil.getEmailFromToken(token);
-
-    Optional<User> optionalCurrentUser = userRepository.findByEmail(email);
-    Optional<User> optionalTargetUser = userRepository.findById(targetUserId);
-
-    if (!optionalCurrentUser.isPresent() || !optionalTargetUser.isPresent()) {
+    if (currentUser == null) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
     }
 
-    User currentUser = optionalCurrentUser.get();
-    User targetUser = optionalTargetUser.get();
+    if (followService.unfollow(currentUser.getId(), targetUserId)) {
+        userSuggestionIndex.adjustFollowerCount(targetUserId, -1);
+    }
+    return ResponseEntity.ok("Unfollowed successfully");
+}
 
-    currentUser.getFollowing().remove(targetUserId);
-    targetUser.getFollowers().remove(currentUser.getId());
+@GetMapping("/{userId}/followers")
+public ResponseEntity<?> getFollowers(@PathVariable String userId,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size) {
+    try {
+        return ResponseEntity.ok(followService.getFollowers(userId, page, size));
+    } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
 
-    userRepository.save(currentUser);
-    userRepository.save(targetUser);
+@GetMapping("/{userId}/following")
+public ResponseEntity<?> getFollowing(@PathVariable String userId,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "20") int size) {
+    try {
+        return ResponseEntity.ok(followService.getFollowing(userId, page, size));
+    } catch (IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
 
-    return ResponseEntity.ok("Unfollowed successfully");
+// Which of the given users the current user follows, for follow buttons on user lists
+@PostMapping("/follow-state")
+public ResponseEntity<?> getFollowState(@AuthenticationPrincipal AuthenticatedUser currentUser,
+                                        @RequestBody Map<String, List<String>> request) {
+    if (currentUser == null) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("User not found");
+    }
+    List<String> userIds = request.get("userIds");
+    return ResponseEntity.ok(followService.followedAmong(currentUser.getId(), userIds));
 }
 
 }
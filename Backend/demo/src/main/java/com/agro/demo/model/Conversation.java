@@ -0,0 +1,48 @@
+package com.agro.demo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inbox entry for a pair of users, maintained by ConversationService as
+ * messages are sent, read, edited and deleted. userA is always the smaller
+ * of the two user IDs, so each pair has exactly one document.
+ */
+@Data
+@Document(collection = "conversations")
+@CompoundIndex(name = "participant_last_idx", def = "{'participants': 1, 'lastMessageAt': -1}")
+public class Conversation {
+    @Id
+    private String id; // userA + "_" + userB
+    private String userA;
+    private String userB;
+    private List<String> participants;
+    private String lastMessageId;
+    private String lastMessageContent;
+    private String lastSenderId;
+    private LocalDateTime lastMessageAt;
+    private long messageCount;
+    private long unreadA; // messages to userA that userA has not read
+    private long unreadB;
+
+    public static String keyFor(String userId, String otherUserId) {
+        return userId.compareTo(otherUserId) < 0 ? userId + "_" + otherUserId : otherUserId + "_" + userId;
+    }
+
+    public static String unreadFieldFor(String userId, String otherUserId) {
+        return userId.compareTo(otherUserId) <= 0 ? "unreadA" : "unreadB";
+    }
+
+    public String getOtherUserId(String userId) {
+        return userId.equals(userA) ? userB : userA;
+    }
+
+    public long getUnreadFor(String userId) {
+        return userId.equals(userA) ? unreadA : unreadB;
+    }
+}
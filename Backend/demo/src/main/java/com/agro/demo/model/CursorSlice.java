@@ -0,0 +1,20 @@
+package com.agro.demo.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class CursorSlice<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor; // null when there are no more items
+
+    public CursorSlice(List<T> content, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = content.size();
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
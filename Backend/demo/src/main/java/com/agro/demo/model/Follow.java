@@ -0,0 +1,33 @@
+package com.agro.demo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "follows")
+@CompoundIndexes({
+    @CompoundIndex(name = "follower_followee_idx", def = "{'followerId': 1, 'followeeId': 1}", unique = true),
+    @CompoundIndex(name = "followee_created_idx", def = "{'followeeId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "follower_created_idx", def = "{'followerId': 1, 'createdAt': -1}")
+})
+public class Follow {
+    @Id
+    private String id;
+    private String followerId; // the user who follows
+    private String followeeId; // the user being followed
+    private LocalDateTime createdAt;
+
+    public Follow() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Follow(String followerId, String followeeId) {
+        this.followerId = followerId;
+        this.followeeId = followeeId;
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -2,14 +2,17 @@ package com.agro.demo.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "messages")
+@CompoundIndex(name = "conversation_time_idx", def = "{'conversationId': 1, 'timestamp': -1, '_id': -1}")
 public class Message {
     @Id
     private String id;
+    private String conversationId; // Conversation.keyFor(senderId, receiverId)
     private String senderId;
     private String receiverId;
     private String content;
@@ -22,10 +25,11 @@ public class Message {
     }
 
     public Message(String senderId, String receiverId, String content) {
+        this.conversationId = Conversation.keyFor(senderId, receiverId);
         this.senderId = senderId;
         this.receiverId = receiverId;
         this.content = content;
         this.timestamp = LocalDateTime.now();
         this.isRead = false;
     }
-} 
\ No newline at end of file
+} 
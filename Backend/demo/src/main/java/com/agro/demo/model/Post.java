@@ -3,6 +3,7 @@ package com.agro.demo.model;
 import lombok.Data;
 import lombok.Builder;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.List;
 import java.time.LocalDateTime;
@@ -10,6 +11,8 @@ import java.time.LocalDateTime;
 @Data
 @Builder
 @Document(collection = "posts")
+@CompoundIndex(name = "feed_cursor_idx", def = "{'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "author_created_idx", def = "{'userId': 1, 'createdAt': -1}")
 public class Post {
     @Id
     private String id;
@@ -20,6 +23,11 @@ public class Post {
     private String videoUrl;
     private LocalDateTime createdAt;
 
+    // Denormalized engagement counters, kept current with $inc
+    private long likeCount;
+    private long commentCount;
+    private long saveCount;
+
     public Post() {
         this.createdAt = LocalDateTime.now();
     }
@@ -34,6 +42,14 @@ public class Post {
         this.createdAt = createdAt != null ? createdAt : LocalDateTime.now();
     }
 
+    public Post(String id, String userId, String content, String caption, List<String> imageUrls, String videoUrl, LocalDateTime createdAt,
+                long likeCount, long commentCount, long saveCount) {
+        this(id, userId, content, caption, imageUrls, videoUrl, createdAt);
+        this.likeCount = likeCount;
+        this.commentCount = commentCount;
+        this.saveCount = saveCount;
+    }
+
     // Validation method to ensure only one type of content is present
     public boolean isValid() {
         int contentCount = 0;
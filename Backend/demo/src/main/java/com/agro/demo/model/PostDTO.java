@@ -8,8 +8,10 @@ import lombok.EqualsAndHashCode;
 public class PostDTO extends Post {
     private String userName;
     private String profilePhoto;
+    private Boolean likedByMe; // null when the request has no viewer
+    private Boolean savedByMe;
 
-    public PostDTO(Post post, User user) {
+    public PostDTO(Post post, UserSummary user) {
         super();
         this.setId(post.getId());
         this.setUserId(post.getUserId());
@@ -18,6 +20,9 @@ public class PostDTO extends Post {
         this.setImageUrls(post.getImageUrls());
         this.setVideoUrl(post.getVideoUrl());
         this.setCreatedAt(post.getCreatedAt());
+        this.setLikeCount(post.getLikeCount());
+        this.setCommentCount(post.getCommentCount());
+        this.setSaveCount(post.getSaveCount());
         
         if (user != null) {
             this.userName = user.getFirstName() + " " + user.getLastName();
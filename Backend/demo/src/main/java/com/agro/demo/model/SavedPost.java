@@ -2,11 +2,13 @@ package com.agro.demo.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "saved_posts")
+@CompoundIndex(name = "user_post_idx", def = "{'userId': 1, 'postId': 1}")
 public class SavedPost {
     @Id
     private String id;
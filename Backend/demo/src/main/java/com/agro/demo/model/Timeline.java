@@ -0,0 +1,20 @@
+package com.agro.demo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Document(collection = "timelines")
+public class Timeline {
+    @Id
+    private String userId; // owner of the home timeline
+    private List<String> postIds; // newest first, capped by TimelineService
+
+    public Timeline() {
+        this.postIds = new ArrayList<>();
+    }
+}
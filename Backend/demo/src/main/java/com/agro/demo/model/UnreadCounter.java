@@ -0,0 +1,13 @@
+package com.agro.demo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+@Data
+@Document(collection = "unread_counters")
+public class UnreadCounter {
+    @Id
+    private String userId; // receiver whose unread messages are counted
+    private long count;    // sum of the user's per-conversation unread counts
+}
@@ -2,6 +2,7 @@ package com.agro.demo.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.HashSet;
@@ -13,9 +14,12 @@ public class User {
 
     @Id
     private String id;
+    @TextIndexed(weight = 3)
     private String email;
     private String password;
+    @TextIndexed(weight = 5)
     private String firstName;
+    @TextIndexed(weight = 5)
     private String lastName;
     private String imageUrl;
     private String provider; // "local", "google", or "facebook"
@@ -24,6 +28,7 @@ public class User {
     private boolean enabled = true;
 
     // Additional profile fields
+    @TextIndexed
     private String about;
     private String address;
     private String contactNumber;
@@ -49,8 +54,9 @@ public class User {
     }
 
 
-       private Set<String> followers = new HashSet<>();
-       private Set<String> following = new HashSet<>();
+    // Denormalized from the follows collection, maintained by FollowService
+    private long followerCount;
+    private long followingCount;
 
     // Getters and Setters
 
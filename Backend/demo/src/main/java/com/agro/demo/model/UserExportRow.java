@@ -0,0 +1,27 @@
+package com.agro.demo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+
+/**
+ * One user in the admin exports: the summary fields plus contact details,
+ * read with a field projection like UserSummary. Only admin endpoints
+ * return it.
+ */
+@Data
+public class UserExportRow {
+
+    public static final String[] FIELDS = {
+        "firstName", "lastName", "email", "about", "profilePhoto", "followerCount", "followingCount"
+    };
+
+    @Id
+    private String id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String about;
+    private String profilePhoto;
+    private long followerCount;
+    private long followingCount;
+}
@@ -0,0 +1,25 @@
+package com.agro.demo.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+
+/**
+ * Display fields of a user for lists, read with a field projection so the
+ * password hash, roles, contact details and provider details never leave the
+ * database. Public endpoints return it, so it carries no email or about text.
+ */
+@Data
+public class UserSummary {
+
+    public static final String[] FIELDS = {
+        "firstName", "lastName", "profilePhoto", "followerCount", "followingCount"
+    };
+
+    @Id
+    private String id;
+    private String firstName;
+    private String lastName;
+    private String profilePhoto;
+    private long followerCount;
+    private long followingCount;
+}
@@ -0,0 +1,25 @@
+package com.agro.demo.repository;
+
+import com.agro.demo.model.Follow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.util.Collection;
+import java.util.List;
+
+public interface FollowRepository extends MongoRepository<Follow, String> {
+    boolean existsByFollowerIdAndFolloweeId(String followerId, String followeeId);
+
+    Slice<Follow> findByFolloweeIdOrderByCreatedAtDesc(String followeeId, Pageable pageable);
+    Slice<Follow> findByFollowerIdOrderByCreatedAtDesc(String followerId, Pageable pageable);
+
+    @Query(value = "{ 'followeeId': ?0 }", fields = "{ 'followerId': 1 }")
+    List<Follow> findFollowerIdsByFolloweeId(String followeeId);
+
+    @Query(value = "{ 'followerId': ?0 }", fields = "{ 'followeeId': 1 }")
+    List<Follow> findFolloweeIdsByFollowerId(String followerId);
+
+    @Query(value = "{ 'followerId': ?0, 'followeeId': { '$in': ?1 } }", fields = "{ 'followeeId': 1 }")
+    List<Follow> findFolloweeIdsByFollowerIdAndFolloweeIdIn(String followerId, Collection<String> followeeIds);
+}
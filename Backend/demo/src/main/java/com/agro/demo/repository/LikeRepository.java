@@ -2,6 +2,8 @@ package com.agro.demo.repository;
 
 import com.agro.demo.model.Like;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,4 +12,7 @@ public interface LikeRepository extends MongoRepository<Like, String> {
     Optional<Like> findByPostIdAndUserId(String postId, String userId);
     void deleteByPostIdAndUserId(String postId, String userId);
     long countByPostId(String postId);
+
+    @Query(value = "{ 'userId': ?0, 'postId': { '$in': ?1 } }", fields = "{ 'postId': 1 }")
+    List<Like> findPostIdsByUserIdAndPostIdIn(String userId, Collection<String> postIds);
 } 
\ No newline at end of file
@@ -1,14 +1,19 @@
 package com.agro.demo.repository;
 
 import com.agro.demo.model.Message;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
-import java.util.List;
+import java.time.LocalDateTime;
 
 @Repository
 public interface MessageRepository extends MongoRepository<Message, String> {
-    List<Message> findBySenderIdAndReceiverId(String senderId, String receiverId);
-    List<Message> findByReceiverId(String receiverId);
-    List<Message> findBySenderId(String senderId);
-    long countByReceiverIdAndIsReadFalse(String receiverId);
-} 
\ No newline at end of file
+    // Keyset pagination over the (conversationId, timestamp, _id) index, newest first
+    Slice<Message> findByConversationId(String conversationId, Pageable pageable);
+
+    @Query("{ 'conversationId': ?0, '$or': [ { 'timestamp': { '$lt': ?1 } }, { 'timestamp': ?1, '_id': { '$lt': ?2 } } ] }")
+    Slice<Message> findHistoryBefore(String conversationId, LocalDateTime timestamp, ObjectId id, Pageable pageable);
+}
@@ -1,12 +1,24 @@
 package com.agro.demo.repository;
 
 import com.agro.demo.model.Post;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface PostRepository extends MongoRepository<Post, String> {
+public interface PostRepository extends MongoRepository<Post, String>, PostRepositoryCustom {
     List<Post> findByUserId(String userId);
+    List<Post> findByUserIdIn(Collection<String> userIds, Pageable pageable);
     Page<Post> findAllByOrderByCreatedAtDesc(Pageable pageable);
+
+    // Keyset pagination over the (createdAt, _id) index, no count query
+    Slice<Post> findAllByOrderByCreatedAtDescIdDesc(Pageable pageable);
+
+    @Query("{ '$or': [ { 'createdAt': { '$lt': ?0 } }, { 'createdAt': ?0, '_id': { '$lt': ?1 } } ] }")
+    Slice<Post> findFeedBefore(LocalDateTime createdAt, ObjectId id, Pageable pageable);
 }
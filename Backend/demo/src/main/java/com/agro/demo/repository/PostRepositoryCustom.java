@@ -0,0 +1,11 @@
+package com.agro.demo.repository;
+
+import com.agro.demo.model.Post;
+
+public interface PostRepositoryCustom {
+    // Atomically $inc one of likeCount, commentCount or saveCount
+    void incrementCounter(String postId, String counter, long delta);
+
+    // $set only the user-editable fields, leaving the counters to incrementCounter
+    void updateContent(Post post);
+}
@@ -0,0 +1,43 @@
+package com.agro.demo.repository;
+
+import com.agro.demo.model.Post;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+public class PostRepositoryCustomImpl implements PostRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public PostRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void incrementCounter(String postId, String counter, long delta) {
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(postId)),
+            new Update().inc(counter, delta),
+            Post.class);
+    }
+
+    @Override
+    public void updateContent(Post post) {
+        Update update = new Update();
+        setOrUnset(update, "caption", post.getCaption());
+        setOrUnset(update, "content", post.getContent());
+        setOrUnset(update, "imageUrls", post.getImageUrls());
+        setOrUnset(update, "videoUrl", post.getVideoUrl());
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(post.getId())), update, Post.class);
+    }
+
+    // save() drops null fields, so clearing a field removes it here too
+    private static void setOrUnset(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        } else {
+            update.unset(field);
+        }
+    }
+}
@@ -2,10 +2,15 @@ package com.agro.demo.repository;
 
 import com.agro.demo.model.SavedPost;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.util.Collection;
 import java.util.List;
 
 public interface SavedPostRepository extends MongoRepository<SavedPost, String> {
     List<SavedPost> findByUserId(String userId);
     SavedPost findByUserIdAndPostId(String userId, String postId);
-    void deleteByUserIdAndPostId(String userId, String postId);
+    long deleteByUserIdAndPostId(String userId, String postId);
+
+    @Query(value = "{ 'userId': ?0, 'postId': { '$in': ?1 } }", fields = "{ 'postId': 1 }")
+    List<SavedPost> findPostIdsByUserIdAndPostIdIn(String userId, Collection<String> postIds);
 } 
\ No newline at end of file
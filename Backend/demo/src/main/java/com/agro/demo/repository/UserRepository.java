@@ -1,16 +1,19 @@
 package com.agro.demo.repository;
 
 import com.agro.demo.model.User;
+import com.agro.demo.model.UserSummary;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
-    
-    List<User> findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCaseOrEmailContainingIgnoreCaseOrAboutContainingIgnoreCase(
-        String firstName, String lastName, String email, String about
-    );
-} 
\ No newline at end of file
+
+    @Query(value = "{ '_id': { '$in': ?0 } }",
+           fields = "{ 'firstName': 1, 'lastName': 1, 'profilePhoto': 1, 'followerCount': 1, 'followingCount': 1 }")
+    List<UserSummary> findSummariesByIdIn(Collection<String> ids);
+}
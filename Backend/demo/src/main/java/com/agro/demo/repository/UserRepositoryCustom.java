@@ -0,0 +1,8 @@
+package com.agro.demo.repository;
+
+import java.util.Map;
+
+public interface UserRepositoryCustom {
+    // $set only the given profile fields; followerCount/followingCount are only ever $inc'd
+    void updateFields(String userId, Map<String, Object> fields);
+}
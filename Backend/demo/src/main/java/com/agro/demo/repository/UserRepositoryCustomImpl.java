@@ -0,0 +1,28 @@
+package com.agro.demo.repository;
+
+import com.agro.demo.model.User;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void updateFields(String userId, Map<String, Object> fields) {
+        if (fields.isEmpty()) {
+            return;
+        }
+        Update update = new Update();
+        fields.forEach(update::set);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(userId)), update, User.class);
+    }
+}
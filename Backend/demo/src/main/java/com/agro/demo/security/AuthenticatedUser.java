@@ -0,0 +1,45 @@
+package com.agro.demo.security;
+
+import com.agro.demo.model.User;
+
+import java.security.Principal;
+import java.util.Set;
+
+/**
+ * The user behind a validated JWT, resolved once per request by
+ * JwtAuthenticationFilter. Inject it with @AuthenticationPrincipal.
+ * Its name is the user ID, which is what STOMP user destinations route on.
+ */
+public class AuthenticatedUser implements Principal {
+
+    private final String id;
+    private final String email;
+    private final Set<String> roles;
+
+    public AuthenticatedUser(String id, String email, Set<String> roles) {
+        this.id = id;
+        this.email = email;
+        this.roles = roles != null ? Set.copyOf(roles) : Set.of();
+    }
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRoles());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+}
@@ -0,0 +1,39 @@
+package com.agro.demo.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Validates the Bearer token once per request and exposes the resolved user
+ * as the Spring Security principal. Requests without a valid token continue
+ * unauthenticated; endpoints decide how to treat a missing principal.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtPrincipalResolver principalResolver;
+
+    public JwtAuthenticationFilter(JwtPrincipalResolver principalResolver) {
+        this.principalResolver = principalResolver;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER_PREFIX)
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String token = header.substring(BEARER_PREFIX.length());
+            principalResolver.authenticate(token)
+                .ifPresent(authentication -> SecurityContextHolder.getContext().setAuthentication(authentication));
+        }
+        filterChain.doFilter(request, response);
+    }
+}
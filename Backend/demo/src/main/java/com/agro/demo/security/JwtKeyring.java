@@ -0,0 +1,114 @@
+package com.agro.demo.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * HMAC signing keys shared by every node, identified by key ID (kid).
+ *
+ * Keys come from jwt.keyring.keys.&lt;kid&gt;=&lt;base64 secret&gt; and, optionally, a
+ * properties file at jwt.keyring.path in the same kid=secret format. New
+ * tokens are signed with jwt.keyring.active-kid; any configured key verifies.
+ * To rotate, add the new key, switch active-kid, and remove the old key once
+ * its tokens have expired. Without a keyring, jwt.secret is used as the
+ * single "default" key, which also verifies tokens that carry no kid; with a
+ * keyring, jwt.secret is ignored and tokens without a kid are rejected.
+ * Every key must be at least 32 bytes.
+ */
+@Component
+public class JwtKeyring {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyring.class);
+    private static final String DEFAULT_KID = "default";
+
+    private final Map<String, Key> keys = new LinkedHashMap<>();
+    private final String activeKid;
+
+    public JwtKeyring(Environment environment,
+                      @Value("${jwt.secret}") String secret,
+                      @Value("${jwt.keyring.active-kid:}") String activeKid,
+                      @Value("${jwt.keyring.path:}") String keyStorePath) {
+        Map<String, String> configured = new LinkedHashMap<>(Binder.get(environment)
+            .bind("jwt.keyring.keys", Bindable.mapOf(String.class, String.class))
+            .orElse(Map.of()));
+        if (!keyStorePath.isEmpty()) {
+            configured.putAll(loadKeyStore(Path.of(keyStorePath)));
+        }
+
+        configured.forEach((kid, encoded) -> keys.put(kid, toKey(kid, Base64.getDecoder().decode(encoded.trim()))));
+        // Once a keyring exists the legacy secret must not keep verifying tokens
+        if (keys.isEmpty()) {
+            keys.put(DEFAULT_KID, toKey(DEFAULT_KID, secret.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        this.activeKid = activeKid.isEmpty() ? DEFAULT_KID : activeKid;
+        if (!keys.containsKey(this.activeKid)) {
+            throw new IllegalStateException("No JWT key configured for active kid " + this.activeKid);
+        }
+        logger.info("JWT keyring loaded with {} keys, signing with kid {}", keys.size(), this.activeKid);
+    }
+
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    public Key getActiveKey() {
+        return keys.get(activeKid);
+    }
+
+    public SigningKeyResolverAdapter signingKeyResolver() {
+        return new SigningKeyResolverAdapter() {
+            // jjwt 0.11 declares this parameter as a raw JwsHeader, so it cannot be parameterized here
+            @Override
+            @SuppressWarnings("rawtypes")
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                String kid = header.getKeyId() != null ? header.getKeyId() : DEFAULT_KID;
+                Key key = keys.get(kid);
+                if (key == null) {
+                    throw new IllegalArgumentException("Unknown JWT key id: " + kid);
+                }
+                return key;
+            }
+        };
+    }
+
+    private static Map<String, String> loadKeyStore(Path path) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read JWT key store " + path, e);
+        }
+        Map<String, String> entries = new LinkedHashMap<>();
+        properties.stringPropertyNames().forEach(kid -> entries.put(kid, properties.getProperty(kid)));
+        return entries;
+    }
+
+    // HS256 needs at least 256 bits; weak secrets are rejected rather than stretched
+    private static Key toKey(String kid, byte[] material) {
+        if (material.length < 32) {
+            throw new IllegalStateException("JWT key " + kid + " must be at least 256 bits (32 bytes)");
+        }
+        return Keys.hmacShaKeyFor(material);
+    }
+}
@@ -0,0 +1,47 @@
+package com.agro.demo.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Turns a bearer token into an authenticated principal. Shared by the HTTP
+ * filter and the STOMP CONNECT interceptor so both accept the same tokens.
+ */
+@Component
+public class JwtPrincipalResolver {
+
+    private final JwtUtil jwtUtil;
+    private final PrincipalCache principalCache;
+
+    public JwtPrincipalResolver(JwtUtil jwtUtil, PrincipalCache principalCache) {
+        this.jwtUtil = jwtUtil;
+        this.principalCache = principalCache;
+    }
+
+    public Optional<UsernamePasswordAuthenticationToken> authenticate(String token) {
+        if (token == null || !jwtUtil.validateToken(token)) {
+            return Optional.empty();
+        }
+        return resolvePrincipal(token).map(user -> {
+            List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+            return new UsernamePasswordAuthenticationToken(user, token, authorities);
+        });
+    }
+
+    // Both token shapes go through the principal cache, so deleted users and
+    // revoked roles are picked up within its TTL instead of at token expiry
+    private Optional<AuthenticatedUser> resolvePrincipal(String token) {
+        String userId = jwtUtil.getUserIdFromToken(token);
+        if (userId != null) {
+            return principalCache.resolveById(userId);
+        }
+        return principalCache.resolve(jwtUtil.getEmailFromToken(token));
+    }
+}
@@ -1,30 +1,66 @@
 package com.agro.demo.security;
 
+import com.agro.demo.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLES_CLAIM = "roles";
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private Key key;
+    private final JwtKeyring keyring;
 
-    public JwtUtil() {
-        this.key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    // Immutable and thread-safe, so one parser serves every request
+    private final JwtParser parser;
+
+    // Verified token -> claims, each entry expiring together with its token
+    private final Cache<String, Claims> verifiedTokens;
+
+    public JwtUtil(JwtKeyring keyring, @Value("${jwt.claims-cache.maximum-size:10000}") long claimsCacheSize) {
+        this.keyring = keyring;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyring.signingKeyResolver())
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String token, Claims claims, long currentTime) {
+                        long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     public String generateToken(String email) {
@@ -32,13 +68,22 @@ public class JwtUtil {
         return createToken(claims, email);
     }
 
+    // Carries the user ID and roles so requests can be authorized without a user lookup
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, user.getId());
+        claims.put(ROLES_CLAIM, new ArrayList<>(user.getRoles()));
+        return createToken(claims, user.getEmail());
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(key)
+                .setHeaderParam("kid", keyring.getActiveKid())
+                .signWith(keyring.getActiveKey())
                 .compact();
     }
 
@@ -46,6 +91,21 @@ public class JwtUtil {
         return extractClaim(token, Claims::getSubject);
     }
 
+    public String getUserIdFromToken(String token) {
+        return extractClaim(token, claims -> claims.get(USER_ID_CLAIM, String.class));
+    }
+
+    public Set<String> getRolesFromToken(String token) {
+        return extractClaim(token, claims -> {
+            Object roles = claims.get(ROLES_CLAIM);
+            Set<String> result = new HashSet<>();
+            if (roles instanceof Collection<?> values) {
+                values.forEach(role -> result.add(String.valueOf(role)));
+            }
+            return result;
+        });
+    }
+
     public boolean validateToken(String token) {
         try {
             return !isTokenExpired(token);
@@ -67,11 +127,14 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public Claims extractAllClaims(String token) {
+        Claims cached = verifiedTokens.getIfPresent(token);
+        if (cached != null) {
+            return cached;
+        }
+        // Throws for bad signatures and expired tokens, so only verified claims are cached
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        verifiedTokens.put(token, claims);
+        return claims;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,74 @@
+package com.agro.demo.security;
+
+import com.agro.demo.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Short-lived cache of token subject (user ID, or email for older tokens) to
+ * AuthenticatedUser, so an authenticated request does not need a users
+ * lookup on every call. Because the principal is re-read from the users
+ * collection at least once per TTL, a deleted account or a revoked role
+ * stops working within principal-cache.ttl-seconds rather than at token expiry.
+ */
+@Component
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, AuthenticatedUser> cache;
+    private final Cache<String, AuthenticatedUser> byId;
+
+    public PrincipalCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                          @Value("${principal-cache.ttl-seconds:60}") long ttlSeconds,
+                          @Value("${principal-cache.maximum-size:10000}") long maximumSize) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "principals");
+        this.byId = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "principals-by-id");
+    }
+
+    public Optional<AuthenticatedUser> resolve(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.get(email,
+            key -> userRepository.findByEmail(key).map(AuthenticatedUser::from).orElse(null)));
+    }
+
+    // Current roles come from the users collection, not from the token
+    public Optional<AuthenticatedUser> resolveById(String userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byId.get(userId,
+            key -> userRepository.findById(key).map(AuthenticatedUser::from).orElse(null)));
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            cache.invalidate(email);
+        }
+    }
+
+    public void evictId(String userId) {
+        if (userId != null) {
+            byId.invalidate(userId);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.agro.demo.security;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticates STOMP sessions with the same JWT used for HTTP. The token is
+ * sent as an Authorization header on the CONNECT frame, since browsers cannot
+ * set headers on the WebSocket handshake itself. The resolved user becomes
+ * the session principal, so /user/queue destinations route by user ID.
+ * SEND is limited to /app/** and SUBSCRIBE to the caller's own message queue.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String APP_PREFIX = "/app/";
+    private static final String USER_QUEUE = "/user/queue/messages";
+
+    private final JwtPrincipalResolver principalResolver;
+
+    public StompAuthChannelInterceptor(JwtPrincipalResolver principalResolver) {
+        this.principalResolver = principalResolver;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+
+        if (StompCommand.CONNECT.equals(accessor.getCommand())) {
+            String header = accessor.getFirstNativeHeader("Authorization");
+            String token = header != null && header.startsWith(BEARER_PREFIX)
+                ? header.substring(BEARER_PREFIX.length())
+                : null;
+            accessor.setUser(principalResolver.authenticate(token)
+                .orElseThrow(() -> new MessagingException("Invalid or missing token")));
+        } else if (accessor.getCommand() != null && accessor.getUser() == null) {
+            throw new MessagingException("Not authenticated");
+        }
+
+        // Clients only talk to @MessageMapping handlers and only listen on their
+        // own queue; anything else would let them inject events into other sessions
+        String destination = accessor.getDestination();
+        if (StompCommand.SEND.equals(accessor.getCommand())
+                && (destination == null || !destination.startsWith(APP_PREFIX))) {
+            throw new MessagingException("Cannot send to " + destination);
+        }
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand()) && !USER_QUEUE.equals(destination)) {
+            throw new MessagingException("Cannot subscribe to " + destination);
+        }
+        return message;
+    }
+}
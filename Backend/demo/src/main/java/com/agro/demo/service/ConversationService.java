@@ -0,0 +1,408 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Conversation;
+import com.agro.demo.model.CursorSlice;
+import com.agro.demo.model.Message;
+import com.agro.demo.model.UnreadCounter;
+import com.agro.demo.repository.MessageRepository;
+import com.agro.demo.util.FeedCursor;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the conversations collection in step with messages.
+ *
+ * Every message write updates the pair's conversation document with a
+ * single atomic update, so the inbox is one indexed query on
+ * (participants, lastMessageAt) instead of a scan of the user's messages.
+ * Each user's total unread count is kept alongside in unread_counters.
+ */
+@Service
+public class ConversationService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageRepository messageRepository;
+
+    public ConversationService(MongoTemplate mongoTemplate, MessageRepository messageRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.messageRepository = messageRepository;
+    }
+
+    /**
+     * Runs the one-off migrations once all beans exist but before the web
+     * server starts, so no request can upsert a conversation or unread
+     * counter while they are being built from the messages collection.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        assignConversationIds();
+        backfill();
+        backfillUnreadCounters();
+    }
+
+    /**
+     * Stamps conversationId on messages written before the field existed,
+     * with one server-side pipeline update.
+     */
+    public void assignConversationIds() {
+        try {
+            AggregationUpdate update = AggregationUpdate.update()
+                .set("conversationId").toValue(ConditionalOperators
+                    .when(ComparisonOperators.valueOf("senderId").lessThanEqualTo("receiverId"))
+                    .then(StringOperators.valueOf("senderId").concat("_").concatValueOf("receiverId"))
+                    .otherwise(StringOperators.valueOf("receiverId").concat("_").concatValueOf("senderId")));
+            UpdateResult result = mongoTemplate.updateMulti(
+                Query.query(Criteria.where("conversationId").exists(false)), update, Message.class);
+            if (result.getModifiedCount() > 0) {
+                logger.info("Assigned conversation IDs to {} messages", result.getModifiedCount());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to assign conversation IDs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds conversations from existing messages the first time the
+     * collection is empty.
+     */
+    public void backfill() {
+        try {
+            if (mongoTemplate.exists(new Query(), Conversation.class)
+                    || !mongoTemplate.exists(new Query(), Message.class)) {
+                return;
+            }
+
+            Map<String, Conversation> conversations = new LinkedHashMap<>();
+            Query all = new Query().with(Sort.by(Sort.Direction.ASC, "timestamp"));
+            try (Stream<Message> stream = mongoTemplate.stream(all, Message.class)) {
+                Iterator<Message> cursor = stream.iterator();
+                while (cursor.hasNext()) {
+                    Message message = cursor.next();
+                    Conversation conversation = conversations.computeIfAbsent(
+                        Conversation.keyFor(message.getSenderId(), message.getReceiverId()),
+                        key -> newConversation(message.getSenderId(), message.getReceiverId()));
+                    applyLastMessage(conversation, message);
+                    conversation.setMessageCount(conversation.getMessageCount() + 1);
+                    if (!message.isRead()) {
+                        if ("unreadA".equals(Conversation.unreadFieldFor(message.getReceiverId(), message.getSenderId()))) {
+                            conversation.setUnreadA(conversation.getUnreadA() + 1);
+                        } else {
+                            conversation.setUnreadB(conversation.getUnreadB() + 1);
+                        }
+                    }
+                }
+            }
+            mongoTemplate.insertAll(conversations.values());
+            logger.info("Backfilled {} conversations from existing messages", conversations.size());
+        } catch (Exception e) {
+            logger.error("Failed to backfill conversations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Seeds the per-user unread totals from the messages collection the first
+     * time the counters collection is empty.
+     */
+    public void backfillUnreadCounters() {
+        try {
+            if (mongoTemplate.exists(new Query(), UnreadCounter.class)) {
+                return;
+            }
+            Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("isRead").is(false)),
+                Aggregation.group("receiverId").count().as("count"));
+            List<UnreadCounter> counters = new ArrayList<>();
+            for (Document row : mongoTemplate.aggregate(aggregation, Message.class, Document.class)) {
+                UnreadCounter counter = new UnreadCounter();
+                counter.setUserId(row.getString("_id"));
+                counter.setCount(((Number) row.get("count")).longValue());
+                counters.add(counter);
+            }
+            if (!counters.isEmpty()) {
+                mongoTemplate.insertAll(counters);
+                logger.info("Backfilled unread counters for {} users", counters.size());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to backfill unread counters: {}", e.getMessage());
+        }
+    }
+
+    public void onMessageSent(Message message) {
+        String senderId = message.getSenderId();
+        String receiverId = message.getReceiverId();
+        String[] pair = orderedPair(senderId, receiverId);
+
+        Update update = new Update()
+            .setOnInsert("userA", pair[0])
+            .setOnInsert("userB", pair[1])
+            .setOnInsert("participants", List.of(pair[0], pair[1]))
+            .set("lastMessageId", message.getId())
+            .set("lastMessageContent", message.getContent())
+            .set("lastSenderId", senderId)
+            .set("lastMessageAt", message.getTimestamp())
+            .inc("messageCount", 1)
+            .inc(Conversation.unreadFieldFor(receiverId, senderId), 1);
+        mongoTemplate.upsert(byKey(senderId, receiverId), update, Conversation.class);
+        adjustUnreadTotal(receiverId, 1);
+    }
+
+    /**
+     * Marks one message read if it was unread, and decrements the receiver's
+     * unread count only when the flip actually happened.
+     */
+    public boolean markRead(Message message) {
+        UpdateResult result = mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(message.getId()).and("isRead").is(false)),
+            new Update().set("isRead", true), Message.class);
+        if (result.getModifiedCount() == 0) {
+            return false;
+        }
+        mongoTemplate.updateFirst(byKey(message.getSenderId(), message.getReceiverId()),
+            new Update().inc(Conversation.unreadFieldFor(message.getReceiverId(), message.getSenderId()), -1),
+            Conversation.class);
+        adjustUnreadTotal(message.getReceiverId(), -1);
+        return true;
+    }
+
+    /**
+     * Marks every message the other user sent to the reader up to the given
+     * time as read with one updateMulti, then subtracts the number actually
+     * flipped from the conversation and the reader's total.
+     *
+     * @return the number of messages that were marked read
+     */
+    public long markConversationRead(String readerId, String otherUserId, LocalDateTime upTo) {
+        Query unread = Query.query(Criteria.where("conversationId").is(Conversation.keyFor(readerId, otherUserId))
+            .and("receiverId").is(readerId)
+            .and("isRead").is(false)
+            .and("timestamp").lte(upTo));
+        long marked = mongoTemplate.updateMulti(unread, new Update().set("isRead", true), Message.class)
+            .getModifiedCount();
+        if (marked > 0) {
+            mongoTemplate.updateFirst(byKey(readerId, otherUserId),
+                new Update().inc(Conversation.unreadFieldFor(readerId, otherUserId), -marked), Conversation.class);
+            adjustUnreadTotal(readerId, -marked);
+        }
+        return marked;
+    }
+
+    // Which of the given conversation keys exist, with one _id $in query
+    public Set<String> existingConversationIds(Collection<String> conversationIds) {
+        Set<String> existing = new HashSet<>();
+        if (conversationIds.isEmpty()) {
+            return existing;
+        }
+        Query query = Query.query(Criteria.where("_id").in(conversationIds));
+        query.fields().include("_id");
+        mongoTemplate.find(query, Conversation.class).forEach(conversation -> existing.add(conversation.getId()));
+        return existing;
+    }
+
+    // One document read per badge poll instead of a count over messages
+    public long getUnreadCount(String userId) {
+        UnreadCounter counter = mongoTemplate.findById(userId, UnreadCounter.class);
+        return counter != null ? Math.max(0, counter.getCount()) : 0;
+    }
+
+    /**
+     * Writes new content with a $set on the message alone; a full save would
+     * write back a stale isRead and undo a concurrent mark-read after its
+     * counters were already decremented.
+     */
+    public void editMessage(Message message, String content) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(message.getId())),
+            new Update().set("content", content), Message.class);
+        message.setContent(content);
+        onMessageEdited(message);
+    }
+
+    public void onMessageEdited(Message message) {
+        // Only matches when the edited message is the one shown in the inbox
+        Query query = byKey(message.getSenderId(), message.getReceiverId())
+            .addCriteria(Criteria.where("lastMessageId").is(message.getId()));
+        mongoTemplate.updateFirst(query, new Update().set("lastMessageContent", message.getContent()), Conversation.class);
+    }
+
+    /**
+     * Removes the message with findAndRemove and settles the counters from
+     * the document that was actually deleted, so a mark-read that lands
+     * between the caller's lookup and the delete is not subtracted twice.
+     *
+     * @return the removed message, or null if it was already gone
+     */
+    public Message deleteMessage(String messageId) {
+        Message removed = mongoTemplate.findAndRemove(
+            Query.query(Criteria.where("_id").is(messageId)), Message.class);
+        if (removed != null) {
+            onMessageDeleted(removed);
+        }
+        return removed;
+    }
+
+    public void onMessageDeleted(Message message) {
+        Update update = new Update().inc("messageCount", -1);
+        if (!message.isRead()) {
+            update.inc(Conversation.unreadFieldFor(message.getReceiverId(), message.getSenderId()), -1);
+            adjustUnreadTotal(message.getReceiverId(), -1);
+        }
+        Conversation conversation = mongoTemplate.findAndModify(
+            byKey(message.getSenderId(), message.getReceiverId()), update,
+            FindAndModifyOptions.options().returnNew(true), Conversation.class);
+        if (conversation == null) {
+            return;
+        }
+        if (conversation.getMessageCount() <= 0) {
+            mongoTemplate.remove(byKey(message.getSenderId(), message.getReceiverId()), Conversation.class);
+        } else if (message.getId().equals(conversation.getLastMessageId())) {
+            refreshLastMessage(message.getSenderId(), message.getReceiverId());
+        }
+    }
+
+    /**
+     * Deletes the whole history between two users with a single deleteMany
+     * on the conversationId index, then drops the inbox entry.
+     *
+     * @return the number of messages deleted
+     */
+    public long deleteConversation(String userId, String otherUserId) {
+        long deleted = mongoTemplate.remove(
+            Query.query(Criteria.where("conversationId").is(Conversation.keyFor(userId, otherUserId))),
+            Message.class).getDeletedCount();
+
+        Conversation removed = mongoTemplate.findAndRemove(byKey(userId, otherUserId), Conversation.class);
+        if (removed != null) {
+            adjustUnreadTotal(removed.getUserA(), -removed.getUnreadA());
+            adjustUnreadTotal(removed.getUserB(), -removed.getUnreadB());
+        }
+        return deleted;
+    }
+
+    public Slice<Conversation> getInbox(String userId, int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+
+        Query query = Query.query(Criteria.where("participants").is(userId))
+            .with(Sort.by(Sort.Direction.DESC, "lastMessageAt"))
+            .skip((long) page * size)
+            .limit(size + 1);
+        List<Conversation> rows = mongoTemplate.find(query, Conversation.class);
+        boolean hasNext = rows.size() > size;
+        List<Conversation> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        return new SliceImpl<>(content, PageRequest.of(page, size), hasNext);
+    }
+
+    /**
+     * One page of a conversation, newest first. The cursor is the
+     * (timestamp, id) of the oldest message already shown.
+     */
+    public CursorSlice<Message> getHistory(String userId, String otherUserId, String before, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+
+        String conversationId = Conversation.keyFor(userId, otherUserId);
+        Pageable pageable = PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "timestamp", "id"));
+        Slice<Message> messages;
+        if (before == null || before.isEmpty()) {
+            messages = messageRepository.findByConversationId(conversationId, pageable);
+        } else {
+            FeedCursor position = FeedCursor.decode(before);
+            messages = messageRepository.findHistoryBefore(conversationId, position.getCreatedAt(), position.getId(), pageable);
+        }
+
+        String nextCursor = null;
+        if (messages.hasNext() && !messages.getContent().isEmpty()) {
+            Message oldest = messages.getContent().get(messages.getContent().size() - 1);
+            nextCursor = new FeedCursor(oldest.getTimestamp(), new ObjectId(oldest.getId())).encode();
+        }
+        return new CursorSlice<>(messages.getContent(), messages.hasNext(), nextCursor);
+    }
+
+    private void refreshLastMessage(String userId, String otherUserId) {
+        Query latest = Query.query(Criteria.where("conversationId").is(Conversation.keyFor(userId, otherUserId)))
+            .with(Sort.by(Sort.Direction.DESC, "timestamp", "_id"))
+            .limit(1);
+        Message message = mongoTemplate.findOne(latest, Message.class);
+        if (message == null) {
+            mongoTemplate.remove(byKey(userId, otherUserId), Conversation.class);
+            return;
+        }
+        mongoTemplate.updateFirst(byKey(userId, otherUserId), new Update()
+            .set("lastMessageId", message.getId())
+            .set("lastMessageContent", message.getContent())
+            .set("lastSenderId", message.getSenderId())
+            .set("lastMessageAt", message.getTimestamp()), Conversation.class);
+    }
+
+    private void adjustUnreadTotal(String userId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(userId)),
+            new Update().inc("count", delta), UnreadCounter.class);
+    }
+
+    private static Conversation newConversation(String userId, String otherUserId) {
+        String[] pair = orderedPair(userId, otherUserId);
+        Conversation conversation = new Conversation();
+        conversation.setId(Conversation.keyFor(userId, otherUserId));
+        conversation.setUserA(pair[0]);
+        conversation.setUserB(pair[1]);
+        conversation.setParticipants(List.of(pair[0], pair[1]));
+        return conversation;
+    }
+
+    private static void applyLastMessage(Conversation conversation, Message message) {
+        conversation.setLastMessageId(message.getId());
+        conversation.setLastMessageContent(message.getContent());
+        conversation.setLastSenderId(message.getSenderId());
+        conversation.setLastMessageAt(message.getTimestamp());
+    }
+
+    private static Query byKey(String userId, String otherUserId) {
+        return Query.query(Criteria.where("_id").is(Conversation.keyFor(userId, otherUserId)));
+    }
+
+    private static String[] orderedPair(String userId, String otherUserId) {
+        return userId.compareTo(otherUserId) <= 0
+            ? new String[] {userId, otherUserId}
+            : new String[] {otherUserId, userId};
+    }
+}
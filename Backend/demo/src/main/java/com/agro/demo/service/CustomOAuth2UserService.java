@@ -9,6 +9,7 @@ import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -18,6 +19,12 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSuggestionIndex userSuggestionIndex;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
     @Override
     public OAuth2User loadUser(OAuth2UserRequest oAuth2UserRequest) throws OAuth2AuthenticationException {
         OAuth2User oAuth2User = super.loadUser(oAuth2UserRequest);
@@ -56,16 +63,23 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
             if (!user.getProvider().equals(provider)) {
                 throw new OAuth2AuthenticationException("Email already registered with " + user.getProvider());
             }
-            // Update existing user
+            // Update existing user; only the provider fields, so follower counts are untouched
             user.setFirstName(firstName);
             user.setLastName(lastName);
             user.setImageUrl(imageUrl);
+            Map<String, Object> changes = new HashMap<>();
+            changes.put("firstName", firstName);
+            changes.put("lastName", lastName);
+            changes.put("imageUrl", imageUrl);
+            userRepository.updateFields(user.getId(), changes);
         } else {
             // Create new user - using the constructor that matches our User class
             user = new User(email, firstName, lastName, imageUrl, provider, providerId);
+            userRepository.save(user);
         }
-        
-        userRepository.save(user);
+
+        userDirectory.invalidate(user.getId());
+        userSuggestionIndex.index(user);
         return oAuth2User;
     }
 } 
\ No newline at end of file
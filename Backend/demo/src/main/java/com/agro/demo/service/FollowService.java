@@ -0,0 +1,254 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Follow;
+import com.agro.demo.model.User;
+import com.agro.demo.model.UserSummary;
+import com.agro.demo.repository.FollowRepository;
+import com.agro.demo.repository.UserRepository;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Follow graph stored as one document per edge in the follows collection.
+ *
+ * Follow and unfollow are single atomic writes on the edge; the unique
+ * (followerId, followeeId) index makes them idempotent, and the
+ * followerCount/followingCount fields on users are only adjusted when an
+ * edge was actually created or removed.
+ */
+@Service
+public class FollowService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FollowService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final FollowRepository followRepository;
+    private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
+
+    public FollowService(MongoTemplate mongoTemplate, FollowRepository followRepository,
+                         UserRepository userRepository, UserDirectory userDirectory) {
+        this.mongoTemplate = mongoTemplate;
+        this.followRepository = followRepository;
+        this.userRepository = userRepository;
+        this.userDirectory = userDirectory;
+    }
+
+    /**
+     * Moves the followers/following arrays of users created before the follows
+     * collection existed into edges. Runs before the other startup loaders,
+     * which read followerCount.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrateEmbeddedFollows() {
+        try {
+            Query legacy = new Query(new Criteria().orOperator(
+                Criteria.where("followers").exists(true),
+                Criteria.where("following").exists(true)));
+            legacy.fields().include("_id").include("followers").include("following");
+            List<Document> users = mongoTemplate.find(legacy, Document.class, "users");
+            if (users.isEmpty()) {
+                return;
+            }
+
+            // Both sides are replayed so that one-sided leftovers of the old
+            // read-modify-write follow still end up as edges
+            for (Document user : users) {
+                String userId = user.get("_id").toString();
+                for (String followeeId : user.getList("following", String.class, List.of())) {
+                    insertEdge(userId, followeeId);
+                }
+                for (String followerId : user.getList("followers", String.class, List.of())) {
+                    insertEdge(followerId, userId);
+                }
+            }
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+            for (Document user : users) {
+                String userId = user.get("_id").toString();
+                long followerCount = mongoTemplate.count(
+                    Query.query(Criteria.where("followeeId").is(userId)), Follow.class);
+                long followingCount = mongoTemplate.count(
+                    Query.query(Criteria.where("followerId").is(userId)), Follow.class);
+                bulk.updateOne(Query.query(Criteria.where("_id").is(user.get("_id"))),
+                    new Update().set("followerCount", followerCount)
+                        .set("followingCount", followingCount)
+                        .unset("followers")
+                        .unset("following"));
+            }
+            bulk.execute();
+            logger.info("Migrated embedded follow sets of {} users to the follows collection", users.size());
+        } catch (Exception e) {
+            logger.error("Failed to migrate embedded follow sets: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if a new edge was created, false if it already existed
+     */
+    public boolean follow(String followerId, String followeeId) {
+        if (followerId.equals(followeeId)) {
+            throw new IllegalArgumentException("Users cannot follow themselves");
+        }
+        if (!userRepository.existsById(followeeId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        if (!insertEdge(followerId, followeeId)) {
+            return false;
+        }
+        adjustCounts(followerId, followeeId, 1);
+        logger.debug("User {} followed {}", followerId, followeeId);
+        return true;
+    }
+
+    /**
+     * @return true if an edge was removed, false if there was none
+     */
+    public boolean unfollow(String followerId, String followeeId) {
+        DeleteResult result = mongoTemplate.remove(edge(followerId, followeeId), Follow.class);
+        if (result.getDeletedCount() == 0) {
+            return false;
+        }
+        adjustCounts(followerId, followeeId, -1);
+        logger.debug("User {} unfollowed {}", followerId, followeeId);
+        return true;
+    }
+
+    public boolean isFollowing(String followerId, String followeeId) {
+        return followRepository.existsByFollowerIdAndFolloweeId(followerId, followeeId);
+    }
+
+    public List<UserSummary> getFollowers(String userId, int page, int size) {
+        validatePage(page, size);
+        Slice<Follow> edges = followRepository.findByFolloweeIdOrderByCreatedAtDesc(userId, PageRequest.of(page, size));
+        return loadInOrder(edges.getContent(), Follow::getFollowerId);
+    }
+
+    public List<UserSummary> getFollowing(String userId, int page, int size) {
+        validatePage(page, size);
+        Slice<Follow> edges = followRepository.findByFollowerIdOrderByCreatedAtDesc(userId, PageRequest.of(page, size));
+        return loadInOrder(edges.getContent(), Follow::getFolloweeId);
+    }
+
+    public List<String> getFollowerIds(String userId) {
+        return followRepository.findFollowerIdsByFolloweeId(userId).stream()
+            .map(Follow::getFollowerId)
+            .collect(Collectors.toList());
+    }
+
+    public List<String> getFollowingIds(String userId) {
+        return followRepository.findFolloweeIdsByFollowerId(userId).stream()
+            .map(Follow::getFolloweeId)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the subset of candidates that the user follows.
+     */
+    public Set<String> followedAmong(String userId, Collection<String> candidateIds) {
+        if (candidateIds == null || candidateIds.isEmpty()) {
+            return Set.of();
+        }
+        return followRepository.findFolloweeIdsByFollowerIdAndFolloweeIdIn(userId, candidateIds).stream()
+            .map(Follow::getFolloweeId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Drops every edge touching a deleted user and fixes the counts of the
+     * users on the other end.
+     */
+    public void removeAllFor(String userId) {
+        List<String> followeeIds = getFollowingIds(userId);
+        List<String> followerIds = getFollowerIds(userId);
+
+        if (!followeeIds.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(followeeIds)),
+                new Update().inc("followerCount", -1), User.class);
+            followeeIds.forEach(userDirectory::invalidate);
+        }
+        if (!followerIds.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(followerIds)),
+                new Update().inc("followingCount", -1), User.class);
+            followerIds.forEach(userDirectory::invalidate);
+        }
+        mongoTemplate.remove(new Query(new Criteria().orOperator(
+            Criteria.where("followerId").is(userId),
+            Criteria.where("followeeId").is(userId))), Follow.class);
+    }
+
+    private boolean insertEdge(String followerId, String followeeId) {
+        try {
+            UpdateResult result = mongoTemplate.upsert(edge(followerId, followeeId),
+                new Update().setOnInsert("createdAt", LocalDateTime.now()), Follow.class);
+            return result.getUpsertedId() != null;
+        } catch (DuplicateKeyException e) {
+            // A concurrent request inserted the same edge first
+            return false;
+        }
+    }
+
+    private void adjustCounts(String followerId, String followeeId, int delta) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        bulk.updateOne(Query.query(Criteria.where("_id").is(followerId)), new Update().inc("followingCount", delta));
+        bulk.updateOne(Query.query(Criteria.where("_id").is(followeeId)), new Update().inc("followerCount", delta));
+        bulk.execute();
+        // Summaries carry the counts
+        userDirectory.invalidate(followerId);
+        userDirectory.invalidate(followeeId);
+    }
+
+    private List<UserSummary> loadInOrder(List<Follow> edges, Function<Follow, String> side) {
+        List<String> ids = edges.stream().map(side).collect(Collectors.toList());
+        Map<String, UserSummary> users = userDirectory.getMany(ids);
+        List<UserSummary> ordered = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            UserSummary user = users.get(id);
+            if (user != null) {
+                ordered.add(user);
+            }
+        }
+        return ordered;
+    }
+
+    private static Query edge(String followerId, String followeeId) {
+        return Query.query(Criteria.where("followerId").is(followerId).and("followeeId").is(followeeId));
+    }
+
+    private static void validatePage(int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+    }
+}
@@ -25,36 +25,35 @@ public class InteractivityService {
     private NotificationRepository notificationRepository;
 
     @Autowired
-    private PostRepository postRepository;
+    private NotificationPipeline notificationPipeline;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private PostCache postCache;
 
     // Like functionality
-    @Transactional
     public Like toggleLike(String postId, String userId) {
         Optional<Like> existingLike = likeRepository.findByPostIdAndUserId(postId, userId);
         
         if (existingLike.isPresent()) {
             likeRepository.delete(existingLike.get());
+            postCache.incrementCounter(postId, "likeCount", -1);
+            trendingService.onLike(postId, -1);
             return null;
         } else {
             Like newLike = new Like(postId, userId);
             likeRepository.save(newLike);
+            postCache.incrementCounter(postId, "likeCount", 1);
+            trendingService.onLike(postId, 1);
             
-            // Create notification for post owner
-            Post post = postRepository.findById(postId).orElseThrow();
-            if (!post.getUserId().equals(userId)) {
-                User actor = userRepository.findById(userId).orElseThrow();
-                Notification notification = new Notification(
-                    post.getUserId(),
-                    userId,
-                    postId,
-                    "LIKE",
-                    actor.getFirstName() + " " + actor.getLastName() + " liked your post"
-                );
-                notificationRepository.save(notification);
-            }
+            // Notify the post owner; written asynchronously by the pipeline
+            Post post = postCache.findById(postId).orElseThrow();
+            notificationPipeline.publish(post.getUserId(), userId, postId, "LIKE", null);
             
             return newLike;
         }
@@ -69,38 +68,19 @@ public class InteractivityService {
     }
 
     // Comment functionality
-    @Transactional
     public Comment addComment(String postId, String userId, String content, String parentCommentId) {
         Comment comment = new Comment(postId, userId, content, parentCommentId);
         commentRepository.save(comment);
+        postCache.incrementCounter(postId, "commentCount", 1);
+        trendingService.onComment(postId, 1);
         
-        // Create notification for post owner or comment owner if it's a reply
-        Post post = postRepository.findById(postId).orElseThrow();
-        User actor = userRepository.findById(userId).orElseThrow();
-        
+        // Notify the post owner, or the comment owner if it's a reply
         if (parentCommentId != null) {
-            // It's a reply to a comment
             Comment parentComment = commentRepository.findById(parentCommentId).orElseThrow();
-            if (!parentComment.getUserId().equals(userId)) {
-                Notification notification = new Notification(
-                    parentComment.getUserId(),
-                    userId,
-                    postId,
-                    "REPLY",
-                    actor.getFirstName() + " " + actor.getLastName() + " replied to your comment: " + content
-                );
-                notificationRepository.save(notification);
-            }
-        } else if (!post.getUserId().equals(userId)) {
-            // It's a top-level comment
-            Notification notification = new Notification(
-                post.getUserId(),
-                userId,
-                postId,
-                "COMMENT",
-                actor.getFirstName() + " " + actor.getLastName() + " commented: " + content
-            );
-            notificationRepository.save(notification);
+            notificationPipeline.publish(parentComment.getUserId(), userId, postId, "REPLY", content);
+        } else {
+            Post post = postCache.findById(postId).orElseThrow();
+            notificationPipeline.publish(post.getUserId(), userId, postId, "COMMENT", content);
         }
         
         return comment;
@@ -126,7 +106,7 @@ public class InteractivityService {
             .orElseThrow(() -> new IllegalArgumentException("Comment not found"));
             
         // Get the post to check if user is the post owner
-        Post post = postRepository.findById(comment.getPostId())
+        Post post = postCache.findById(comment.getPostId())
             .orElseThrow(() -> new IllegalArgumentException("Post not found"));
             
         if (!comment.getUserId().equals(userId) && !post.getUserId().equals(userId)) {
@@ -134,18 +114,15 @@ public class InteractivityService {
         }
         
         commentRepository.delete(comment);
+        postCache.incrementCounter(comment.getPostId(), "commentCount", -1);
+        trendingService.onComment(comment.getPostId(), -1);
     }
 
     public List<Comment> getComments(String postId) {
         List<Comment> comments = commentRepository.findByPostIdOrderByCreatedAtDesc(postId);
         
-        // Populate user information for each comment
-        for (Comment comment : comments) {
-            User user = userRepository.findById(comment.getUserId())
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-            comment.setUserName(user.getFirstName() + " " + user.getLastName());
-            comment.setUserProfilePhoto(user.getProfilePhoto());
-        }
+        // Populate user information for all comments with one lookup
+        populateAuthors(comments);
         
         // Organize comments into a tree structure
         Map<String, List<Comment>> commentMap = new HashMap<>();
@@ -177,18 +154,28 @@ public class InteractivityService {
             
         List<Comment> replies = commentRepository.findByParentCommentIdOrderByCreatedAtDesc(commentId);
         
-        // Populate user information for each reply
-        for (Comment reply : replies) {
-            User user = userRepository.findById(reply.getUserId())
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-            reply.setUserName(user.getFirstName() + " " + user.getLastName());
-            reply.setUserProfilePhoto(user.getProfilePhoto());
-        }
+        // Populate user information for all replies with one lookup
+        populateAuthors(replies);
         
         return replies;
     }
 
-    @Transactional
+    private void populateAuthors(List<Comment> comments) {
+        List<String> userIds = new ArrayList<>(comments.size());
+        for (Comment comment : comments) {
+            userIds.add(comment.getUserId());
+        }
+        Map<String, UserSummary> users = userDirectory.getMany(userIds);
+        for (Comment comment : comments) {
+            UserSummary user = users.get(comment.getUserId());
+            if (user == null) {
+                throw new IllegalArgumentException("User not found");
+            }
+            comment.setUserName(user.getFirstName() + " " + user.getLastName());
+            comment.setUserProfilePhoto(user.getProfilePhoto());
+        }
+    }
+
     public Comment toggleCommentLike(String commentId, String userId) {
         Comment comment = commentRepository.findById(commentId)
             .orElseThrow(() -> new IllegalArgumentException("Comment not found"));
@@ -202,18 +189,8 @@ public class InteractivityService {
             comment.getLikedBy().add(userId);
             comment.setLikeCount(comment.getLikeCount() + 1);
             
-            // Create notification for comment owner
-            if (!comment.getUserId().equals(userId)) {
-                User actor = userRepository.findById(userId).orElseThrow();
-                Notification notification = new Notification(
-                    comment.getUserId(),
-                    userId,
-                    comment.getPostId(),
-                    "COMMENT_LIKE",
-                    actor.getFirstName() + " " + actor.getLastName() + " liked your comment"
-                );
-                notificationRepository.save(notification);
-            }
+            // Notify the comment owner
+            notificationPipeline.publish(comment.getUserId(), userId, comment.getPostId(), "COMMENT_LIKE", commentId);
         }
         
         return commentRepository.save(comment);
@@ -0,0 +1,101 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pushes message, presence and typing events to users' /user/queue/messages
+ * subscriptions. Pushes are best effort: users without an open session are
+ * skipped and pick changes up through the REST endpoints instead.
+ */
+@Service
+public class MessagePushService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessagePushService.class);
+    private static final String DESTINATION = "/queue/messages";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MessagingSessionRegistry sessionRegistry;
+
+    public MessagePushService(SimpMessagingTemplate messagingTemplate, MessagingSessionRegistry sessionRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    public void messageCreated(Message message) {
+        pushToParticipants("MESSAGE_CREATED", message);
+    }
+
+    public void messageUpdated(Message message) {
+        pushToParticipants("MESSAGE_UPDATED", message);
+    }
+
+    public void messageDeleted(Message message) {
+        pushToParticipants("MESSAGE_DELETED", message);
+    }
+
+    /**
+     * Read receipt for the sender: the reader has read everything the sender
+     * sent them up to the given time.
+     */
+    public void messagesRead(String readerId, String senderId, LocalDateTime upTo) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", "MESSAGES_READ");
+        event.put("readerId", readerId);
+        event.put("upTo", upTo);
+        // Self-conversations have reader == sender, which Set.of rejects
+        Set<String> recipients = new LinkedHashSet<>();
+        recipients.add(senderId);
+        recipients.add(readerId); // the reader's other tabs
+        push(recipients, event);
+    }
+
+    public void presenceChanged(String userId, boolean online, LocalDateTime lastSeen, Set<String> watchers) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", "PRESENCE");
+        event.put("userId", userId);
+        event.put("online", online);
+        event.put("lastSeen", lastSeen);
+        push(watchers, event);
+    }
+
+    public void typing(String userId, String toUserId, boolean typing) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", "TYPING");
+        event.put("userId", userId);
+        event.put("typing", typing);
+        push(Set.of(toUserId), event);
+    }
+
+    private void pushToParticipants(String type, Message message) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", type);
+        event.put("message", message);
+        Set<String> recipients = new LinkedHashSet<>();
+        recipients.add(message.getReceiverId());
+        recipients.add(message.getSenderId()); // the sender's other tabs
+        push(recipients, event);
+    }
+
+    private void push(Set<String> userIds, Map<String, Object> event) {
+        for (String userId : userIds) {
+            if (!sessionRegistry.isConnected(userId)) {
+                continue;
+            }
+            try {
+                messagingTemplate.convertAndSendToUser(userId, DESTINATION, event);
+            } catch (Exception e) {
+                logger.warn("Failed to push {} to user {}: {}", event.get("type"), userId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Conversation;
+import com.agro.demo.model.Message;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Lucene index of message content on local disk, fed by message writes.
+ *
+ * Each message is indexed once with both participants as filter terms, so a
+ * search is restricted to the caller's own conversations. The query syntax is
+ * Lucene's classic parser: "fertilizer price" is a phrase, pric* a prefix.
+ * Searches run against a near-real-time searcher refreshed every second and
+ * return matches newest first. Read state changes too often to keep in the
+ * index, so it is filled in for the returned page with one _id $in query;
+ * otherwise Mongo is only read to catch the index up at startup.
+ * Paging is limited to the first MAX_RESULT_WINDOW hits.
+ *
+ * New messages are committed in the background, and every commit records the
+ * newest message timestamp it covers. After a crash the messages written past
+ * that mark are replayed from Mongo. Edits and deletes cannot be replayed that
+ * way, so they are committed as soon as they are applied.
+ */
+@Service
+public class MessageSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    private static final String ID = "id";
+    private static final String CONVERSATION_ID = "conversationId";
+    private static final String PARTICIPANT = "participant";
+    private static final String SENDER_ID = "senderId";
+    private static final String RECEIVER_ID = "receiverId";
+    private static final String CONTENT = "content";
+    private static final String TIMESTAMP = "timestamp";
+    private static final int MAX_RESULT_WINDOW = 1000;
+    private static final String INDEXED_UP_TO = "indexedUpTo";
+    // Messages are indexed after they are saved, so one sent slightly earlier
+    // can land after a later one; the replay starts this far before the mark
+    private static final long REPLAY_MARGIN_MS = 60_000;
+    private static final Sort NEWEST_FIRST = new Sort(new SortField(TIMESTAMP, SortField.Type.LONG, true));
+
+    private final MongoTemplate mongoTemplate;
+    private final StandardAnalyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    // Newest message timestamp handed to the writer, in epoch millis
+    private final AtomicLong indexedUpTo = new AtomicLong(Long.MIN_VALUE);
+
+    public MessageSearchIndex(MongoTemplate mongoTemplate,
+                              @Value("${message-search.index-path:data/message-index}") String indexPath) throws IOException {
+        this.mongoTemplate = mongoTemplate;
+        this.writer = new IndexWriter(FSDirectory.open(Path.of(indexPath)),
+            new IndexWriterConfig(analyzer).setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Brings the index up to date with Mongo: everything when it is empty or
+     * predates the commit mark, otherwise the messages past the last mark.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        try {
+            Long mark = committedMark();
+            org.springframework.data.mongodb.core.query.Query missing = new org.springframework.data.mongodb.core.query.Query();
+            if (mark != null && writer.getDocStats().numDocs > 0) {
+                missing.addCriteria(Criteria.where("timestamp").gte(toDateTime(mark - REPLAY_MARGIN_MS)));
+            }
+            long indexed = 0;
+            try (Stream<Message> stream = mongoTemplate.stream(missing, Message.class)) {
+                Iterator<Message> cursor = stream.iterator();
+                while (cursor.hasNext()) {
+                    Message message = cursor.next();
+                    writer.updateDocument(new Term(ID, message.getId()), toDocument(message));
+                    advanceMark(message);
+                    indexed++;
+                }
+            }
+            commitWithMark();
+            searcherManager.maybeRefresh();
+            if (indexed > 0) {
+                logger.info("Indexed {} messages missing from the search index", indexed);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to catch up message search index: {}", e.getMessage());
+        }
+    }
+
+    public void index(Message message) {
+        try {
+            writer.updateDocument(new Term(ID, message.getId()), toDocument(message));
+            advanceMark(message);
+        } catch (IOException e) {
+            logger.error("Failed to index message {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    // Re-indexes edited content and commits, since the replay only finds new messages
+    public void update(Message message) {
+        try {
+            writer.updateDocument(new Term(ID, message.getId()), toDocument(message));
+            advanceMark(message);
+            commitWithMark();
+        } catch (IOException e) {
+            logger.error("Failed to re-index message {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    public void remove(Message message) {
+        try {
+            writer.deleteDocuments(new Term(ID, message.getId()));
+            commitWithMark();
+        } catch (IOException e) {
+            logger.error("Failed to remove message {} from index: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    public void removeConversation(String userId, String otherUserId) {
+        try {
+            writer.deleteDocuments(new Term(CONVERSATION_ID, Conversation.keyFor(userId, otherUserId)));
+            commitWithMark();
+        } catch (IOException e) {
+            logger.error("Failed to remove conversation from index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Searches the caller's messages, optionally within one conversation,
+     * newest first.
+     */
+    public SearchResult search(String userId, String queryText, String withUserId, int page, int size) {
+        if (queryText == null || queryText.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        // Lucene collects the whole window up front, so deep pages are refused
+        if ((long) (page + 1) * size > MAX_RESULT_WINDOW) {
+            throw new IllegalArgumentException("Search results are limited to the first " + MAX_RESULT_WINDOW + " matches");
+        }
+
+        Query text;
+        try {
+            QueryParser parser = new QueryParser(CONTENT, analyzer);
+            parser.setDefaultOperator(QueryParser.Operator.AND);
+            text = parser.parse(queryText.trim());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid search query");
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+            .add(text, BooleanClause.Occur.MUST)
+            .add(new TermQuery(new Term(PARTICIPANT, userId)), BooleanClause.Occur.FILTER);
+        if (withUserId != null && !withUserId.isEmpty()) {
+            query.add(new TermQuery(new Term(CONVERSATION_ID, Conversation.keyFor(userId, withUserId))),
+                BooleanClause.Occur.FILTER);
+        }
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            int window = (page + 1) * size;
+            TopDocs top = searcher.search(query.build(), window, NEWEST_FIRST);
+            List<Message> hits = new ArrayList<>();
+            for (int i = page * size; i < top.scoreDocs.length; i++) {
+                ScoreDoc hit = top.scoreDocs[i];
+                hits.add(toMessage(searcher.storedFields().document(hit.doc)));
+            }
+            fillReadState(hits);
+            return new SearchResult(hits, top.totalHits.value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    logger.warn("Failed to release searcher: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void fillReadState(List<Message> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(hits.size());
+        hits.forEach(hit -> ids.add(hit.getId()));
+        org.springframework.data.mongodb.core.query.Query readState =
+            new org.springframework.data.mongodb.core.query.Query(Criteria.where("_id").in(ids));
+        readState.fields().include("_id").include("isRead");
+        Map<String, Boolean> read = new HashMap<>();
+        mongoTemplate.find(readState, Message.class).forEach(message -> read.put(message.getId(), message.isRead()));
+        hits.forEach(hit -> hit.setRead(read.getOrDefault(hit.getId(), false)));
+    }
+
+    // New writes become searchable within a second
+    @Scheduled(fixedDelayString = "${message-search.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            logger.warn("Failed to refresh message searcher: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${message-search.commit-interval-ms:30000}")
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                commitWithMark();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to commit message index: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        if (writer.hasUncommittedChanges()) {
+            commitWithMark();
+        }
+        writer.close();
+    }
+
+    // Read before the commit starts, so the mark never covers a message the commit misses
+    private synchronized void commitWithMark() throws IOException {
+        long mark = indexedUpTo.get();
+        if (mark != Long.MIN_VALUE) {
+            writer.setLiveCommitData(Map.of(INDEXED_UP_TO, Long.toString(mark)).entrySet());
+        }
+        writer.commit();
+    }
+
+    private Long committedMark() {
+        Iterable<Map.Entry<String, String>> data = writer.getLiveCommitData();
+        if (data != null) {
+            for (Map.Entry<String, String> entry : data) {
+                if (INDEXED_UP_TO.equals(entry.getKey())) {
+                    return Long.parseLong(entry.getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    private void advanceMark(Message message) {
+        indexedUpTo.accumulateAndGet(toMillis(message.getTimestamp()), Math::max);
+    }
+
+    private static Document toDocument(Message message) {
+        long millis = toMillis(message.getTimestamp());
+        Document document = new Document();
+        document.add(new StringField(ID, message.getId(), Field.Store.YES));
+        document.add(new StringField(CONVERSATION_ID,
+            Conversation.keyFor(message.getSenderId(), message.getReceiverId()), Field.Store.YES));
+        document.add(new StringField(PARTICIPANT, message.getSenderId(), Field.Store.NO));
+        document.add(new StringField(PARTICIPANT, message.getReceiverId(), Field.Store.NO));
+        document.add(new StoredField(SENDER_ID, message.getSenderId()));
+        document.add(new StoredField(RECEIVER_ID, message.getReceiverId()));
+        document.add(new TextField(CONTENT, message.getContent() != null ? message.getContent() : "", Field.Store.YES));
+        document.add(new LongPoint(TIMESTAMP, millis));
+        document.add(new NumericDocValuesField(TIMESTAMP, millis));
+        document.add(new StoredField(TIMESTAMP, millis));
+        return document;
+    }
+
+    private static Message toMessage(Document document) {
+        Message message = new Message();
+        message.setId(document.get(ID));
+        message.setConversationId(document.get(CONVERSATION_ID));
+        message.setSenderId(document.get(SENDER_ID));
+        message.setReceiverId(document.get(RECEIVER_ID));
+        message.setContent(document.get(CONTENT));
+        message.setTimestamp(toDateTime(document.getField(TIMESTAMP).numericValue().longValue()));
+        return message;
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    public static class SearchResult {
+        private final List<Message> hits;
+        private final long totalHits;
+
+        public SearchResult(List<Message> hits, long totalHits) {
+            this.hits = hits;
+            this.totalHits = totalHits;
+        }
+
+        public List<Message> getHits() {
+            return hits;
+        }
+
+        public long getTotalHits() {
+            return totalHits;
+        }
+    }
+}
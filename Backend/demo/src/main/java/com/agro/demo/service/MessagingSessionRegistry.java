@@ -0,0 +1,68 @@
+package com.agro.demo.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which users have at least one open STOMP session on this node,
+ * so pushes are only built for users who can receive them.
+ */
+@Service
+public class MessagingSessionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessagingSessionRegistry.class);
+
+    private final Map<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+
+    public MessagingSessionRegistry(MeterRegistry meterRegistry) {
+        Gauge.builder("messaging.connected.users", sessionsByUser, Map::size)
+            .description("Users with an open WebSocket session")
+            .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        String sessionId = (String) event.getMessage().getHeaders().get("simpSessionId");
+        if (user == null || sessionId == null) {
+            return;
+        }
+        // Added inside compute so a concurrent disconnect cannot drop the set it lands in
+        sessionsByUser.compute(user.getName(), (userId, sessions) -> {
+            if (sessions == null) {
+                sessions = ConcurrentHashMap.newKeySet();
+            }
+            sessions.add(sessionId);
+            return sessions;
+        });
+        logger.debug("User {} connected session {}", user.getName(), sessionId);
+    }
+
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Principal user = event.getUser();
+        if (user == null) {
+            return;
+        }
+        sessionsByUser.computeIfPresent(user.getName(), (userId, sessions) -> {
+            sessions.remove(event.getSessionId());
+            return sessions.isEmpty() ? null : sessions;
+        });
+        logger.debug("User {} disconnected session {}", user.getName(), event.getSessionId());
+    }
+
+    public boolean isConnected(String userId) {
+        return sessionsByUser.containsKey(userId);
+    }
+}
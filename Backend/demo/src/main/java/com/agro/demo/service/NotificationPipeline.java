@@ -0,0 +1,272 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Notification;
+import com.agro.demo.model.UserSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.bson.types.ObjectId;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes notifications off the request path.
+ *
+ * Likes and comments publish a NotificationEvent into a bounded queue and
+ * return. A single worker drains the queue in batches, collapses repeated
+ * LIKE / COMMENT_LIKE events for the same recipient, actor and target,
+ * resolves all actor names with one UserDirectory lookup and inserts the
+ * batch with one bulk insert. When the queue is full the caller writes its
+ * own notification, so bursts slow requests down rather than losing events.
+ *
+ * A batch that fails to write (Mongo unavailable, actor lookup failing) is
+ * retried with exponential backoff. Each event carries the notification ID
+ * it was given when published, so a retry after a partial insert skips the
+ * rows that already made it. Only a batch that still fails after
+ * notifications.max-attempts is dropped, and counted in notifications.dropped.
+ */
+@Service
+public class NotificationPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPipeline.class);
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserDirectory userDirectory;
+    private final BlockingQueue<NotificationEvent> queue;
+    private final Timer flushTimer;
+    private final Counter coalesced;
+    private final Counter dropped;
+
+    @Value("${notifications.batch-size:200}")
+    private int batchSize;
+
+    @Value("${notifications.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${notifications.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${notifications.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    private volatile boolean running = true;
+    private Thread worker;
+
+    public NotificationPipeline(MongoTemplate mongoTemplate, UserDirectory userDirectory,
+                                MeterRegistry meterRegistry,
+                                @Value("${notifications.queue-capacity:10000}") int queueCapacity) {
+        this.mongoTemplate = mongoTemplate;
+        this.userDirectory = userDirectory;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("notifications.queue.depth", queue, BlockingQueue::size)
+            .description("Notification events waiting to be written")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("notifications.flush.latency")
+            .description("Time to resolve actors and bulk insert one batch of notifications")
+            .register(meterRegistry);
+        this.coalesced = Counter.builder("notifications.coalesced")
+            .description("Notification events merged into an earlier event in the same batch")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("notifications.dropped")
+            .description("Notification events given up on after every write attempt failed")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = new Thread(this::run, "notification-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // The worker notices within one poll interval and drains what is left
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+        // Anything published after the worker stopped
+        List<NotificationEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            writeOnce(remaining);
+        }
+    }
+
+    public void publish(String recipientId, String actorId, String postId, String type, String detail) {
+        if (recipientId == null || recipientId.equals(actorId)) {
+            return;
+        }
+        NotificationEvent event = new NotificationEvent(recipientId, actorId, postId, type, detail);
+        if (!queue.offer(event)) {
+            logger.warn("Notification queue full, writing {} notification inline", type);
+            writeOnce(List.of(event));
+        }
+    }
+
+    private void run() {
+        List<NotificationEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                NotificationEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                // Shutdown mid-retry; stop() writes whatever is still queued
+                dropped.increment(batch.size());
+                logger.error("Dropped {} notifications on shutdown", batch.size());
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeWithRetry(List<NotificationEvent> batch) throws InterruptedException {
+        long backoff = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flush(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    dropped.increment(batch.size());
+                    logger.error("Dropped {} notifications after {} attempts: {}", batch.size(), attempt, e.getMessage());
+                    return;
+                }
+                logger.warn("Failed to write {} notifications (attempt {}), retrying in {} ms: {}",
+                    batch.size(), attempt, backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    // For the inline and shutdown paths, which must not hold up the caller
+    private void writeOnce(List<NotificationEvent> events) {
+        try {
+            flush(events);
+        } catch (RuntimeException e) {
+            dropped.increment(events.size());
+            logger.error("Dropped {} notifications: {}", events.size(), e.getMessage());
+        }
+    }
+
+    private void flush(List<NotificationEvent> events) {
+        flushTimer.record(() -> {
+            List<NotificationEvent> merged = new ArrayList<>(events.size());
+            Set<String> seen = new HashSet<>();
+            Set<String> actorIds = new LinkedHashSet<>();
+            for (NotificationEvent event : events) {
+                String key = event.coalesceKey();
+                if (key != null && !seen.add(key)) {
+                    coalesced.increment();
+                    continue;
+                }
+                merged.add(event);
+                actorIds.add(event.actorId);
+            }
+            Map<String, UserSummary> actors = userDirectory.getMany(actorIds);
+
+            List<Notification> notifications = new ArrayList<>(merged.size());
+            for (NotificationEvent event : merged) {
+                UserSummary actor = actors.get(event.actorId);
+                if (actor == null) {
+                    logger.warn("Dropping {} notification from unknown user {}", event.type, event.actorId);
+                    continue;
+                }
+                Notification notification = new Notification(event.recipientId, event.actorId, event.postId,
+                    event.type, describe(event, actor.getFirstName() + " " + actor.getLastName()));
+                notification.setId(event.id);
+                notification.setCreatedAt(event.createdAt);
+                notifications.add(notification);
+            }
+            if (!notifications.isEmpty()) {
+                insert(notifications);
+            }
+            logger.debug("Wrote {} notifications from {} events", notifications.size(), events.size());
+        });
+    }
+
+    // Unordered so one duplicate does not stop the rest; duplicates are rows
+    // an earlier attempt already wrote
+    private void insert(List<Notification> notifications) {
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class)
+                .insert(notifications)
+                .execute();
+        } catch (BulkOperationException e) {
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+            logger.debug("Skipped {} notifications written by an earlier attempt", e.getErrors().size());
+        }
+    }
+
+    private static String describe(NotificationEvent event, String actorName) {
+        switch (event.type) {
+            case "LIKE":
+                return actorName + " liked your post";
+            case "COMMENT":
+                return actorName + " commented: " + event.detail;
+            case "REPLY":
+                return actorName + " replied to your comment: " + event.detail;
+            case "COMMENT_LIKE":
+                return actorName + " liked your comment";
+            default:
+                return actorName + " interacted with your post";
+        }
+    }
+
+    private static class NotificationEvent {
+        private final String id = new ObjectId().toHexString();
+        private final String recipientId;
+        private final String actorId;
+        private final String postId;
+        private final String type;
+        private final String detail;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        NotificationEvent(String recipientId, String actorId, String postId, String type, String detail) {
+            this.recipientId = recipientId;
+            this.actorId = actorId;
+            this.postId = postId;
+            this.type = type;
+            this.detail = detail;
+        }
+
+        // Comments and replies are each kept; repeated like events carry nothing new
+        String coalesceKey() {
+            if ("COMMENT".equals(type) || "REPLY".equals(type)) {
+                return null;
+            }
+            return type + ':' + recipientId + ':' + actorId + ':' + postId + ':' + detail;
+        }
+    }
+}
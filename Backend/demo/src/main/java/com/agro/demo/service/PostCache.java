@@ -0,0 +1,85 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Post;
+import com.agro.demo.repository.PostRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded read-through cache of posts by ID in front of PostRepository.
+ *
+ * Writers must call invalidate after saving or deleting a post. Counter
+ * updates are applied to the cached copy so hot posts stay cached while
+ * they are being liked, commented on and saved. Hit, miss and eviction
+ * metrics are published under cache.* with cache=posts.
+ */
+@Service
+public class PostCache {
+
+    private final PostRepository postRepository;
+    private final Cache<String, Post> cache;
+
+    public PostCache(PostRepository postRepository, MeterRegistry meterRegistry,
+                     @Value("${post-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${post-cache.expire-after-write-seconds:600}") long expireAfterWriteSeconds) {
+        this.postRepository = postRepository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "posts");
+    }
+
+    public Optional<Post> findById(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.get(id, key -> postRepository.findById(key).orElse(null)));
+    }
+
+    // Missing IDs are loaded with one findAllById; deleted posts are simply absent
+    public Map<String, Post> getAll(Collection<String> ids) {
+        return cache.getAll(ids, missing -> {
+            Map<String, Post> loaded = new HashMap<>();
+            postRepository.findAllById(new ArrayList<>(missing)).forEach(post -> loaded.put(post.getId(), post));
+            return loaded;
+        });
+    }
+
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    // $inc in Mongo, then the same delta on the cached copy if there is one
+    public void incrementCounter(String id, String counter, long delta) {
+        postRepository.incrementCounter(id, counter, delta);
+        applyCounterDelta(id, counter, delta);
+    }
+
+    private void applyCounterDelta(String id, String counter, long delta) {
+        cache.asMap().computeIfPresent(id, (key, post) -> {
+            Post copy = new Post(post.getId(), post.getUserId(), post.getContent(), post.getCaption(),
+                post.getImageUrls(), post.getVideoUrl(), post.getCreatedAt(),
+                post.getLikeCount(), post.getCommentCount(), post.getSaveCount());
+            switch (counter) {
+                case "likeCount" -> copy.setLikeCount(Math.max(0, copy.getLikeCount() + delta));
+                case "commentCount" -> copy.setCommentCount(Math.max(0, copy.getCommentCount() + delta));
+                case "saveCount" -> copy.setSaveCount(Math.max(0, copy.getSaveCount() + delta));
+                default -> throw new IllegalArgumentException("Unknown counter: " + counter);
+            }
+            return copy;
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Post;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Repairs drift in the denormalized likeCount, commentCount and saveCount
+ * fields on posts by recounting the source collections in batches.
+ */
+@Service
+public class PostCounterReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostCounterReconciler.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final PostCache postCache;
+
+    @Value("${counters.reconcile-batch-size:500}")
+    private int batchSize;
+
+    public PostCounterReconciler(MongoTemplate mongoTemplate, PostCache postCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.postCache = postCache;
+    }
+
+    @Scheduled(initialDelayString = "${counters.reconcile-initial-delay-ms:60000}",
+               fixedDelayString = "${counters.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        long scanned = 0;
+        long repaired = 0;
+        ObjectId lastId = null;
+
+        try {
+            while (true) {
+                Query batch = new Query();
+                if (lastId != null) {
+                    batch.addCriteria(Criteria.where("_id").gt(lastId));
+                }
+                batch.with(Sort.by(Sort.Direction.ASC, "_id")).limit(batchSize);
+                batch.fields().include("_id").include("likeCount").include("commentCount").include("saveCount");
+                List<Post> posts = mongoTemplate.find(batch, Post.class);
+                if (posts.isEmpty()) {
+                    break;
+                }
+
+                repaired += repairBatch(posts);
+                scanned += posts.size();
+                lastId = new ObjectId(posts.get(posts.size() - 1).getId());
+            }
+            logger.info("Counter reconciliation scanned {} posts, repaired {}", scanned, repaired);
+        } catch (Exception e) {
+            logger.error("Counter reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private int repairBatch(List<Post> posts) {
+        List<String> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+        Map<String, Long> likes = countByPost("likes", postIds);
+        Map<String, Long> comments = countByPost("comments", postIds);
+        Map<String, Long> saves = countByPost("saved_posts", postIds);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
+        List<String> repairedIds = new ArrayList<>();
+        for (Post post : posts) {
+            long likeCount = likes.getOrDefault(post.getId(), 0L);
+            long commentCount = comments.getOrDefault(post.getId(), 0L);
+            long saveCount = saves.getOrDefault(post.getId(), 0L);
+            if (post.getLikeCount() == likeCount && post.getCommentCount() == commentCount
+                    && post.getSaveCount() == saveCount) {
+                continue;
+            }
+            bulk.updateOne(Query.query(Criteria.where("_id").is(post.getId())),
+                new Update().set("likeCount", likeCount)
+                    .set("commentCount", commentCount)
+                    .set("saveCount", saveCount));
+            repairedIds.add(post.getId());
+        }
+        if (!repairedIds.isEmpty()) {
+            bulk.execute();
+            repairedIds.forEach(postCache::invalidate);
+        }
+        return repairedIds.size();
+    }
+
+    private Map<String, Long> countByPost(String collection, List<String> postIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("postId").in(postIds)),
+            Aggregation.group("postId").count().as("count"));
+        Map<String, Long> counts = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, collection, Document.class)) {
+            counts.put(row.getString("_id"), ((Number) row.get("count")).longValue());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,99 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Post;
+import com.agro.demo.model.PostDTO;
+import com.agro.demo.model.UserSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns a page of posts into PostDTOs with a single author lookup.
+ * The distinct author IDs on the page are resolved through UserDirectory,
+ * which serves cached summaries and loads the rest with one $in query
+ * instead of one findById per post. When a viewer is given, the
+ * likedByMe and savedByMe flags are filled with one query per collection.
+ */
+@Service
+public class PostHydrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostHydrator.class);
+
+    private final UserDirectory userDirectory;
+    private final ViewerStateService viewerStateService;
+    private final Counter roundTripsSaved;
+
+    public PostHydrator(UserDirectory userDirectory, ViewerStateService viewerStateService,
+                        MeterRegistry meterRegistry) {
+        this.userDirectory = userDirectory;
+        this.viewerStateService = viewerStateService;
+        this.roundTripsSaved = Counter.builder("posts.hydration.roundtrips.saved")
+            .description("Author lookups avoided by batching them into one query")
+            .register(meterRegistry);
+    }
+
+    public List<PostDTO> hydrate(List<Post> posts) {
+        return hydrate(posts, null);
+    }
+
+    public List<PostDTO> hydrate(List<Post> posts, String viewerId) {
+        if (posts == null || posts.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<String, UserSummary> authors = loadAuthors(posts);
+
+        Set<String> likedIds = null;
+        Set<String> savedIds = null;
+        if (viewerId != null && !viewerId.isEmpty()) {
+            List<String> postIds = new ArrayList<>(posts.size());
+            for (Post post : posts) {
+                postIds.add(post.getId());
+            }
+            likedIds = viewerStateService.likedPostIds(viewerId, postIds);
+            savedIds = viewerStateService.savedPostIds(viewerId, postIds);
+        }
+
+        List<PostDTO> dtos = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            UserSummary author = authors.get(post.getUserId());
+            if (author == null) {
+                logger.warn("No user found for post {}", post.getId());
+            }
+            PostDTO dto = new PostDTO(post, author);
+            if (likedIds != null) {
+                dto.setLikedByMe(likedIds.contains(post.getId()));
+                dto.setSavedByMe(savedIds.contains(post.getId()));
+            }
+            dtos.add(dto);
+        }
+
+        // Previously every post cost its own findById; now the page costs one query
+        long saved = posts.size() - 1;
+        if (saved > 0) {
+            roundTripsSaved.increment(saved);
+        }
+        logger.debug("Hydrated {} posts with {} authors, saved {} round trips", posts.size(), authors.size(), saved);
+
+        return dtos;
+    }
+
+    private Map<String, UserSummary> loadAuthors(List<Post> posts) {
+        Set<String> authorIds = new LinkedHashSet<>();
+        for (Post post : posts) {
+            if (post.getUserId() != null) {
+                authorIds.add(post.getUserId());
+            }
+        }
+        return userDirectory.getMany(authorIds);
+    }
+}
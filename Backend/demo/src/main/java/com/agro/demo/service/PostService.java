@@ -1,24 +1,29 @@
 package com.agro.demo.service;
 
+import com.agro.demo.model.CursorSlice;
 import com.agro.demo.model.Post;
 import com.agro.demo.model.User;
 import com.agro.demo.model.PostDTO;
 import com.agro.demo.repository.PostRepository;
 import com.agro.demo.repository.UserRepository;
+import com.agro.demo.util.FeedCursor;
 import com.agro.demo.util.VideoValidator;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import java.util.ArrayList;
 
 @Service
@@ -38,6 +43,21 @@ public class PostService {
     @Autowired
     private CloudinaryService cloudinaryService;
 
+    @Autowired
+    private PostHydrator postHydrator;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private PostCache postCache;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
     public Post createPost(Post post, List<MultipartFile> images, MultipartFile videoFile) throws IOException {
         logger.info("Creating a new post");
         
@@ -89,7 +109,17 @@ public class PostService {
             throw new IllegalArgumentException("Post must have exactly one of: content, images, or video");
         }
 
-        return postRepository.save(post);
+        Post savedPost = postRepository.save(post);
+        trendingService.onPostCreated(savedPost);
+
+        // Push into followers' home timelines; the post itself is already stored
+        try {
+            timelineService.fanOut(savedPost, userOptional.get());
+        } catch (Exception e) {
+            logger.error("Error fanning out post {}: {}", savedPost.getId(), e.getMessage());
+        }
+
+        return savedPost;
     }
 
     public List<PostDTO> getAllPostsByUserId(String userId) {
@@ -101,12 +131,7 @@ public class PostService {
         }
 
         List<Post> posts = postRepository.findByUserId(userId);
-        return posts.stream()
-            .map(post -> {
-                Optional<User> user = userRepository.findById(post.getUserId());
-                return new PostDTO(post, user.orElse(null));
-            })
-            .collect(Collectors.toList());
+        return postHydrator.hydrate(posts);
     }
 
     public PostDTO getPostByIdAndUserId(String id, String userId) {
@@ -117,7 +142,7 @@ public class PostService {
             throw new IllegalArgumentException("User ID is required");
         }
 
-        Optional<Post> postOptional = postRepository.findById(id);
+        Optional<Post> postOptional = postCache.findById(id);
         
         if (postOptional.isEmpty() || !postOptional.get().getUserId().equals(userId)) {
             logger.error("Error: Post not found or does not belong to the user");
@@ -125,8 +150,7 @@ public class PostService {
         }
         
         Post post = postOptional.get();
-        Optional<User> user = userRepository.findById(post.getUserId());
-        return new PostDTO(post, user.orElse(null));
+        return new PostDTO(post, userDirectory.get(post.getUserId()).orElse(null));
     }
 
     public Post updatePost(String id, String userId, Post updatedPost, List<MultipartFile> images, MultipartFile videoFile) throws IOException {
@@ -214,7 +238,10 @@ public class PostService {
             }
         }
 
-        return postRepository.save(existingPost);
+        // A full save would write back the counters read above and lose concurrent $inc updates
+        postRepository.updateContent(existingPost);
+        postCache.invalidate(id);
+        return existingPost;
     }
 
     public void deletePost(String id, String userId) {
@@ -233,9 +260,11 @@ public class PostService {
         }
 
         postRepository.deleteById(id);
+        postCache.invalidate(id);
+        trendingService.onPostDeleted(id);
     }
 
-    public Page<PostDTO> getFeed(int page, int size) {
+    public Page<PostDTO> getFeed(int page, int size, String viewerId) {
         logger.info("Fetching feed with page: {} and size: {}", page, size);
         
         if (page < 0) {
@@ -251,15 +280,33 @@ public class PostService {
         Pageable pageable = PageRequest.of(page, size);
         Page<Post> posts = postRepository.findAllByOrderByCreatedAtDesc(pageable);
         
-        return posts.map(post -> {
-            Optional<User> user = userRepository.findById(post.getUserId());
-            if (user.isPresent()) {
-                logger.info("User found for post {}: {} {}", post.getId(), user.get().getFirstName(), user.get().getLastName());
-                logger.info("User profile photo: {}", user.get().getProfilePhoto());
-            } else {
-                logger.warn("No user found for post {}", post.getId());
-            }
-            return new PostDTO(post, user.orElse(null));
-        });
+        List<PostDTO> content = postHydrator.hydrate(posts.getContent(), viewerId);
+        return new PageImpl<>(content, posts.getPageable(), posts.getTotalElements());
+    }
+
+    public CursorSlice<PostDTO> getFeedAfter(String cursor, int size, String viewerId) {
+        logger.info("Fetching feed after cursor: {} with size: {}", cursor, size);
+
+        if (size <= 0) {
+            logger.error("Error: Page size must be greater than 0");
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+
+        Pageable pageable = PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        Slice<Post> posts;
+        if (cursor == null || cursor.isEmpty()) {
+            posts = postRepository.findAllByOrderByCreatedAtDescIdDesc(pageable);
+        } else {
+            FeedCursor position = FeedCursor.decode(cursor);
+            posts = postRepository.findFeedBefore(position.getCreatedAt(), position.getId(), pageable);
+        }
+
+        List<PostDTO> content = postHydrator.hydrate(posts.getContent(), viewerId);
+        String nextCursor = null;
+        if (posts.hasNext() && !posts.getContent().isEmpty()) {
+            Post last = posts.getContent().get(posts.getContent().size() - 1);
+            nextCursor = new FeedCursor(last.getCreatedAt(), new ObjectId(last.getId())).encode();
+        }
+        return new CursorSlice<>(content, posts.hasNext(), nextCursor);
     }
 } 
\ No newline at end of file
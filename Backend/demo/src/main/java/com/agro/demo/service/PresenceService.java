@@ -0,0 +1,284 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Conversation;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online / last-seen presence for messaging, kept entirely in memory.
+ *
+ * Every heartbeat (STOMP connect or disconnect, the REST heartbeat, typing)
+ * stamps the user's last-seen time. Users are parked in a timer wheel with
+ * one slot per tick; when their slot comes round they are either still
+ * connected (kept alive), have heartbeated since (re-parked at the new
+ * deadline) or are marked offline. Each user sits in at most one slot, so a
+ * tick only touches the users due to expire in it.
+ *
+ * Changes are pushed to the users who asked for that user's presence through
+ * the batch endpoint, so clients no longer poll to notice someone coming online.
+ * Presence lookups and typing events are limited to users who share a
+ * conversation; known pairs are cached so heartbeats and repeat lookups
+ * stay off Mongo.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+    private static final int MAX_WATCHED = 200;
+
+    private final MessagingSessionRegistry sessionRegistry;
+    private final MessagePushService messagePushService;
+    private final ConversationService conversationService;
+    // Conversation keys known to exist; only hits are cached so new conversations show up at once
+    private final Cache<String, Boolean> knownConversations;
+
+    private final long timeoutMs;
+    private final long tickMs;
+    private final List<Set<String>> wheel;
+    private int cursor; // guarded by wheel
+
+    private final Map<String, Presence> presences = new ConcurrentHashMap<>();
+    // userId -> users who asked for their presence, and the reverse for cleanup
+    private final Map<String, Set<String>> watchers = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> watching = new ConcurrentHashMap<>();
+
+    public PresenceService(MessagingSessionRegistry sessionRegistry, MessagePushService messagePushService,
+                           ConversationService conversationService, MeterRegistry meterRegistry,
+                           @Value("${presence.timeout-ms:60000}") long timeoutMs,
+                           @Value("${presence.tick-ms:1000}") long tickMs,
+                           @Value("${presence.conversation-cache-seconds:300}") long conversationCacheSeconds) {
+        this.sessionRegistry = sessionRegistry;
+        this.messagePushService = messagePushService;
+        this.conversationService = conversationService;
+        this.knownConversations = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(conversationCacheSeconds))
+            .maximumSize(100_000)
+            .build();
+        this.timeoutMs = timeoutMs;
+        this.tickMs = tickMs;
+
+        int slots = (int) ((timeoutMs + tickMs - 1) / tickMs) + 1;
+        this.wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+
+        Gauge.builder("messaging.presence.online", this, PresenceService::countOnline)
+            .description("Users currently considered online")
+            .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Principal user = event.getUser();
+        if (user != null) {
+            heartbeat(user.getName());
+        }
+    }
+
+    // The session is gone, but the user keeps their presence until the
+    // timeout so a page reload does not flicker them offline
+    @EventListener
+    public void onDisconnected(SessionDisconnectEvent event) {
+        Principal user = event.getUser();
+        if (user != null) {
+            heartbeat(user.getName());
+        }
+    }
+
+    public void heartbeat(String userId) {
+        if (userId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Presence presence = presences.computeIfAbsent(userId, key -> new Presence());
+        boolean cameOnline;
+        synchronized (presence) {
+            presence.lastSeen = now;
+            cameOnline = !presence.online;
+            presence.online = true;
+            if (!presence.scheduled) {
+                presence.scheduled = true;
+                park(userId, now + timeoutMs, now);
+            }
+        }
+        if (cameOnline) {
+            logger.debug("User {} is online", userId);
+            publish(userId, true, now);
+        }
+    }
+
+    /**
+     * Presence for the given users, as { online, lastSeen }. Users not seen
+     * since startup are reported offline with no last-seen time; users who
+     * share no conversation with the viewer are left out. The viewer is
+     * registered to receive PRESENCE pushes for these users until they go
+     * offline, and the lookup counts as a heartbeat so a viewer that only
+     * polls still expires and releases its watches.
+     */
+    public Map<String, Map<String, Object>> getPresence(String viewerId, Collection<String> userIds) {
+        if (userIds.size() > MAX_WATCHED) {
+            throw new IllegalArgumentException("At most " + MAX_WATCHED + " users can be requested at once");
+        }
+        heartbeat(viewerId);
+
+        Map<String, Map<String, Object>> result = new HashMap<>();
+        for (String userId : sharingConversation(viewerId, userIds)) {
+            Presence presence = presences.get(userId);
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("online", presence != null && presence.online);
+            entry.put("lastSeen", presence != null ? toDateTime(presence.lastSeen) : null);
+            result.put(userId, entry);
+
+            if (!viewerId.equals(userId)) {
+                watchers.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(viewerId);
+                watching.computeIfAbsent(viewerId, key -> ConcurrentHashMap.newKeySet()).add(userId);
+            }
+        }
+        return result;
+    }
+
+    public boolean isOnline(String userId) {
+        Presence presence = presences.get(userId);
+        return presence != null && presence.online;
+    }
+
+    public void typing(String userId, String toUserId, boolean typing) {
+        heartbeat(userId);
+        if (sharingConversation(userId, List.of(toUserId)).isEmpty()) {
+            logger.debug("Dropping typing event from {} to {}: no conversation", userId, toUserId);
+            return;
+        }
+        messagePushService.typing(userId, toUserId, typing);
+    }
+
+    @Scheduled(fixedRateString = "${presence.tick-ms:1000}")
+    public void tick() {
+        Set<String> due;
+        synchronized (wheel) {
+            cursor = (cursor + 1) % wheel.size();
+            due = wheel.get(cursor);
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> expired = new ArrayList<>();
+        for (String userId : due) {
+            due.remove(userId);
+            Presence presence = presences.get(userId);
+            if (presence == null) {
+                continue;
+            }
+            synchronized (presence) {
+                if (sessionRegistry.isConnected(userId)) {
+                    presence.lastSeen = now;
+                    park(userId, now + timeoutMs, now);
+                } else if (presence.lastSeen + timeoutMs > now) {
+                    park(userId, presence.lastSeen + timeoutMs, now);
+                } else {
+                    presence.online = false;
+                    presence.scheduled = false;
+                    expired.add(userId);
+                }
+            }
+        }
+
+        for (String userId : expired) {
+            logger.debug("User {} is offline", userId);
+            publish(userId, false, presences.get(userId).lastSeen);
+            stopWatching(userId);
+        }
+    }
+
+    // The subset of userIds that have a conversation with viewerId, plus viewerId itself
+    private Set<String> sharingConversation(String viewerId, Collection<String> userIds) {
+        Map<String, String> userByKey = new HashMap<>();
+        Set<String> allowed = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            if (viewerId.equals(userId)) {
+                allowed.add(userId);
+            } else if (userId != null) {
+                userByKey.put(Conversation.keyFor(viewerId, userId), userId);
+            }
+        }
+        if (!userByKey.isEmpty()) {
+            Map<String, Boolean> found = knownConversations.getAll(userByKey.keySet(), missing -> {
+                Map<String, Boolean> loaded = new HashMap<>();
+                conversationService.existingConversationIds(new ArrayList<>(missing))
+                    .forEach(key -> loaded.put(key, Boolean.TRUE));
+                return loaded;
+            });
+            found.keySet().forEach(key -> allowed.add(userByKey.get(key)));
+        }
+        return allowed;
+    }
+
+    private void park(String userId, long deadline, long now) {
+        long ticksAhead = Math.max(1, (deadline - now + tickMs - 1) / tickMs);
+        synchronized (wheel) {
+            int slot = (int) ((cursor + Math.min(ticksAhead, wheel.size() - 1)) % wheel.size());
+            wheel.get(slot).add(userId);
+        }
+    }
+
+    private void publish(String userId, boolean online, long lastSeen) {
+        Set<String> audience = watchers.get(userId);
+        if (audience != null && !audience.isEmpty()) {
+            messagePushService.presenceChanged(userId, online, toDateTime(lastSeen), audience);
+        }
+    }
+
+    private void stopWatching(String viewerId) {
+        Set<String> watched = watching.remove(viewerId);
+        if (watched == null) {
+            return;
+        }
+        for (String userId : watched) {
+            watchers.computeIfPresent(userId, (key, viewers) -> {
+                viewers.remove(viewerId);
+                return viewers.isEmpty() ? null : viewers;
+            });
+        }
+    }
+
+    private double countOnline() {
+        return presences.values().stream().filter(presence -> presence.online).count();
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static class Presence {
+        // Written under the lock, read without it by lookups
+        private volatile long lastSeen;
+        private volatile boolean online;
+        private boolean scheduled; // parked in a wheel slot, guarded by this
+    }
+}
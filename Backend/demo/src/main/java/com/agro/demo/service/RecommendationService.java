@@ -0,0 +1,328 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Follow;
+import com.agro.demo.model.LearningPlan;
+import com.agro.demo.model.UserSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * "People you may know" recommendations.
+ *
+ * A background job snapshots the follow graph into compressed sparse row
+ * form: user IDs are interned to ints, and each user's followees are a
+ * sorted slice of one shared int array. Candidates are the followees of
+ * followees (ranked by how many of them lead to the candidate) plus users
+ * who share learning plan topics. Topics held by more than
+ * recommendations.max-topic-members users say little about either user and
+ * would make the job quadratic, so they are ignored. The top results per
+ * user are kept in an immutable map that is swapped in when the job
+ * finishes, so requests only do a map lookup.
+ */
+@Service
+public class RecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationService.class);
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "the", "and", "for", "with", "from", "into", "your", "plan", "learning", "how", "about", "basics");
+
+    private final MongoTemplate mongoTemplate;
+    private final UserDirectory userDirectory;
+
+    @Value("${recommendations.per-user:20}")
+    private int perUser;
+
+    @Value("${recommendations.topic-weight:0.5}")
+    private double topicWeight;
+
+    @Value("${recommendations.max-topic-members:500}")
+    private int maxTopicMembers;
+
+    private volatile Map<String, List<Recommendation>> recommendations = Collections.emptyMap();
+
+    public RecommendationService(MongoTemplate mongoTemplate, UserDirectory userDirectory) {
+        this.mongoTemplate = mongoTemplate;
+        this.userDirectory = userDirectory;
+    }
+
+    public List<Recommendation> getRecommendations(String userId, int limit) {
+        List<Recommendation> cached = recommendations.getOrDefault(userId, Collections.emptyList());
+        return cached.size() <= limit ? cached : cached.subList(0, limit);
+    }
+
+    @Scheduled(initialDelayString = "${recommendations.initial-delay-ms:30000}",
+               fixedDelayString = "${recommendations.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            Interner users = new Interner();
+            Map<Integer, int[]> topicsByUser = loadTopics(users);
+            FollowGraph graph = loadGraph(users);
+            int[][] topics = new int[users.size()][];
+            topicsByUser.forEach((user, userTopics) -> topics[user] = userTopics);
+            recommendations = compute(users, graph, topics);
+            logger.info("Computed recommendations for {} users over {} follow edges in {} ms",
+                recommendations.size(), graph.targets.length, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to compute recommendations: {}", e.getMessage());
+        }
+    }
+
+    private FollowGraph loadGraph(Interner users) {
+        // Edges are streamed as interned pairs, then packed into offsets/targets
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        int edges = 0;
+
+        Query query = new Query();
+        query.fields().include("followerId").include("followeeId");
+        try (Stream<Follow> stream = mongoTemplate.stream(query, Follow.class)) {
+            Iterator<Follow> cursor = stream.iterator();
+            while (cursor.hasNext()) {
+                Follow follow = cursor.next();
+                if (edges == from.length) {
+                    from = Arrays.copyOf(from, edges * 2);
+                    to = Arrays.copyOf(to, edges * 2);
+                }
+                from[edges] = users.intern(follow.getFollowerId());
+                to[edges] = users.intern(follow.getFolloweeId());
+                edges++;
+            }
+        }
+
+        int n = users.size();
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < edges; i++) {
+            offsets[from[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] targets = new int[edges];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < edges; i++) {
+            targets[fill[from[i]]++] = to[i];
+        }
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(targets, offsets[i], offsets[i + 1]);
+        }
+        return new FollowGraph(offsets, targets);
+    }
+
+    private Map<Integer, int[]> loadTopics(Interner users) {
+        Interner topics = new Interner();
+        Map<Integer, BitSet> byUser = new HashMap<>();
+
+        Query query = new Query();
+        query.fields().include("userId").include("title");
+        for (LearningPlan plan : mongoTemplate.find(query, LearningPlan.class)) {
+            if (plan.getUserId() == null || plan.getTitle() == null) {
+                continue;
+            }
+            int user = users.intern(plan.getUserId());
+            for (String word : plan.getTitle().toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (word.length() >= 3 && !STOP_WORDS.contains(word)) {
+                    byUser.computeIfAbsent(user, key -> new BitSet()).set(topics.intern(word));
+                }
+            }
+        }
+
+        Map<Integer, int[]> result = new HashMap<>();
+        byUser.forEach((user, set) -> result.put(user, set.stream().toArray()));
+        return result;
+    }
+
+    private Map<String, List<Recommendation>> compute(Interner users, FollowGraph graph, int[][] topics) {
+        int n = users.size();
+
+        // Inverted topic index: topic -> users, so topic-only candidates are found without a full scan
+        Map<Integer, List<Integer>> topicMembers = new HashMap<>();
+        for (int user = 0; user < n; user++) {
+            if (topics[user] != null) {
+                for (int topic : topics[user]) {
+                    topicMembers.computeIfAbsent(topic, key -> new ArrayList<>()).add(user);
+                }
+            }
+        }
+        // Like a document-frequency cutoff: common words cost |members|^2 and rank nobody
+        topicMembers.values().removeIf(members -> members.size() > maxTopicMembers);
+
+        int[] mutuals = new int[n];
+        int[] shared = new int[n];
+        int[] touched = new int[n];
+        BitSet followed = new BitSet(n);
+        Map<String, List<Recommendation>> result = new HashMap<>();
+
+        for (int user = 0; user < n; user++) {
+            int touchedCount = 0;
+            followed.clear();
+            for (int i = graph.offsets[user]; i < graph.offsets[user + 1]; i++) {
+                followed.set(graph.targets[i]);
+            }
+
+            for (int i = graph.offsets[user]; i < graph.offsets[user + 1]; i++) {
+                int friend = graph.targets[i];
+                for (int j = graph.offsets[friend]; j < graph.offsets[friend + 1]; j++) {
+                    int candidate = graph.targets[j];
+                    if (candidate == user || followed.get(candidate)) {
+                        continue;
+                    }
+                    if (mutuals[candidate] == 0 && shared[candidate] == 0) {
+                        touched[touchedCount++] = candidate;
+                    }
+                    mutuals[candidate]++;
+                }
+            }
+            if (topics[user] != null) {
+                for (int topic : topics[user]) {
+                    List<Integer> members = topicMembers.get(topic);
+                    if (members == null) {
+                        continue;
+                    }
+                    for (int candidate : members) {
+                        if (candidate == user || followed.get(candidate)) {
+                            continue;
+                        }
+                        if (mutuals[candidate] == 0 && shared[candidate] == 0) {
+                            touched[touchedCount++] = candidate;
+                        }
+                        shared[candidate]++;
+                    }
+                }
+            }
+            if (touchedCount == 0) {
+                continue;
+            }
+
+            PriorityQueue<Recommendation> top = new PriorityQueue<>(perUser + 1);
+            for (int k = 0; k < touchedCount; k++) {
+                int candidate = touched[k];
+                double score = mutuals[candidate] + topicWeight * shared[candidate];
+                top.add(new Recommendation(users.get(candidate), mutuals[candidate], shared[candidate], score));
+                if (top.size() > perUser) {
+                    top.poll();
+                }
+                mutuals[candidate] = 0;
+                shared[candidate] = 0;
+            }
+            List<Recommendation> ranked = new ArrayList<>(top);
+            ranked.sort(Collections.reverseOrder());
+            result.put(users.get(user), Collections.unmodifiableList(ranked));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Loads display fields for the recommended users, keeping the ranking order.
+     */
+    public List<Map<String, Object>> describe(List<Recommendation> ranked) {
+        List<String> ids = new ArrayList<>(ranked.size());
+        ranked.forEach(recommendation -> ids.add(recommendation.getUserId()));
+        Map<String, UserSummary> byId = userDirectory.getMany(ids);
+
+        List<Map<String, Object>> result = new ArrayList<>(ranked.size());
+        for (Recommendation recommendation : ranked) {
+            UserSummary user = byId.get(recommendation.getUserId());
+            if (user == null) {
+                continue;
+            }
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", user.getId());
+            entry.put("firstName", user.getFirstName());
+            entry.put("lastName", user.getLastName());
+            entry.put("profilePhoto", user.getProfilePhoto());
+            entry.put("mutualCount", recommendation.getMutualCount());
+            entry.put("sharedTopicCount", recommendation.getSharedTopicCount());
+            result.add(entry);
+        }
+        return result;
+    }
+
+    private static class FollowGraph {
+        private final int[] offsets; // followees of user i are targets[offsets[i] .. offsets[i + 1])
+        private final int[] targets;
+
+        FollowGraph(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+    }
+
+    private static class Interner {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int intern(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+
+    public static class Recommendation implements Comparable<Recommendation> {
+        private final String userId;
+        private final int mutualCount;
+        private final int sharedTopicCount;
+        private final double score;
+
+        public Recommendation(String userId, int mutualCount, int sharedTopicCount, double score) {
+            this.userId = userId;
+            this.mutualCount = mutualCount;
+            this.sharedTopicCount = sharedTopicCount;
+            this.score = score;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public int getMutualCount() {
+            return mutualCount;
+        }
+
+        public int getSharedTopicCount() {
+            return sharedTopicCount;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public int compareTo(Recommendation other) {
+            int byScore = Double.compare(score, other.score);
+            return byScore != 0 ? byScore : other.userId.compareTo(userId);
+        }
+    }
+}
@@ -3,16 +3,14 @@ package com.agro.demo.service;
 import com.agro.demo.model.SavedPost;
 import com.agro.demo.model.Post;
 import com.agro.demo.model.PostDTO;
-import com.agro.demo.model.User;
 import com.agro.demo.repository.SavedPostRepository;
-import com.agro.demo.repository.PostRepository;
-import com.agro.demo.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -24,16 +22,19 @@ public class SavedPostService {
     private SavedPostRepository savedPostRepository;
 
     @Autowired
-    private PostRepository postRepository;
+    private PostHydrator postHydrator;
 
     @Autowired
-    private UserRepository userRepository;
+    private TrendingService trendingService;
+
+    @Autowired
+    private PostCache postCache;
 
     public SavedPost savePost(String userId, String postId) {
         logger.info("Saving post {} for user {}", postId, userId);
 
         // Check if post exists
-        Optional<Post> postOptional = postRepository.findById(postId);
+        Optional<Post> postOptional = postCache.findById(postId);
         if (postOptional.isEmpty()) {
             logger.error("Post not found with ID: {}", postId);
             throw new IllegalArgumentException("Post not found");
@@ -48,29 +49,36 @@ public class SavedPostService {
 
         // Create new saved post
         SavedPost savedPost = new SavedPost(userId, postId);
-        return savedPostRepository.save(savedPost);
+        SavedPost result = savedPostRepository.save(savedPost);
+        postCache.incrementCounter(postId, "saveCount", 1);
+        trendingService.onSave(postId, 1);
+        return result;
     }
 
     public void unsavePost(String userId, String postId) {
         logger.info("Unsaving post {} for user {}", postId, userId);
-        savedPostRepository.deleteByUserIdAndPostId(userId, postId);
+        long removed = savedPostRepository.deleteByUserIdAndPostId(userId, postId);
+        if (removed > 0) {
+            postCache.incrementCounter(postId, "saveCount", -1);
+            trendingService.onSave(postId, -1);
+        }
     }
 
     public List<PostDTO> getSavedPosts(String userId) {
         logger.info("Fetching saved posts for user {}", userId);
 
         List<SavedPost> savedPosts = savedPostRepository.findByUserId(userId);
-        return savedPosts.stream()
-            .map(savedPost -> {
-                Optional<Post> postOptional = postRepository.findById(savedPost.getPostId());
-                if (postOptional.isPresent()) {
-                    Post post = postOptional.get();
-                    Optional<User> userOptional = userRepository.findById(post.getUserId());
-                    return new PostDTO(post, userOptional.orElse(null));
-                }
-                return null;
-            })
-            .filter(postDTO -> postDTO != null)
+        List<String> postIds = savedPosts.stream()
+            .map(SavedPost::getPostId)
             .collect(Collectors.toList());
+
+        // Resolve all saved posts in one query, keeping the saved order
+        Map<String, Post> postsById = postCache.getAll(postIds);
+        List<Post> posts = postIds.stream()
+            .map(postsById::get)
+            .filter(post -> post != null)
+            .collect(Collectors.toList());
+
+        return postHydrator.hydrate(posts, userId);
     }
 } 
\ No newline at end of file
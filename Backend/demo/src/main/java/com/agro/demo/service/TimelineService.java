@@ -0,0 +1,144 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Post;
+import com.agro.demo.model.PostDTO;
+import com.agro.demo.model.Timeline;
+import com.agro.demo.model.User;
+import com.agro.demo.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Materialized home timelines.
+ *
+ * New posts are pushed onto a capped postIds array in each follower's timeline
+ * document (fan-out on write). Authors with more followers than the fan-out
+ * threshold are skipped on write and their recent posts are merged in when the
+ * timeline is read (fan-out on read).
+ */
+@Service
+public class TimelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimelineService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final PostRepository postRepository;
+    private final FollowService followService;
+    private final PostHydrator postHydrator;
+    private final PostCache postCache;
+
+    @Value("${timeline.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${timeline.fanout-threshold:5000}")
+    private int fanoutThreshold;
+
+    // Authors whose posts are pulled at read time instead of pushed at write time
+    private final Set<String> largeAccounts = ConcurrentHashMap.newKeySet();
+
+    public TimelineService(MongoTemplate mongoTemplate, PostRepository postRepository,
+                           FollowService followService, PostHydrator postHydrator, PostCache postCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.postRepository = postRepository;
+        this.followService = followService;
+        this.postHydrator = postHydrator;
+        this.postCache = postCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLargeAccounts() {
+        try {
+            Query query = new Query(Criteria.where("followerCount").gt(fanoutThreshold));
+            query.fields().include("_id");
+            mongoTemplate.find(query, User.class).forEach(user -> largeAccounts.add(user.getId()));
+            logger.info("Loaded {} accounts that use fan-out on read", largeAccounts.size());
+        } catch (Exception e) {
+            logger.error("Failed to load large accounts: {}", e.getMessage());
+        }
+    }
+
+    public void fanOut(Post post, User author) {
+        if (author.getFollowerCount() > fanoutThreshold) {
+            logger.info("Skipping fan-out for {} ({} followers)", author.getId(), author.getFollowerCount());
+            largeAccounts.add(author.getId());
+            return;
+        }
+
+        List<String> recipients = new ArrayList<>();
+        recipients.add(author.getId());
+        recipients.addAll(followService.getFollowerIds(author.getId()));
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Timeline.class);
+        for (String recipient : recipients) {
+            Update update = new Update();
+            update.push("postIds").atPosition(Update.Position.FIRST).slice(maxEntries).each(post.getId());
+            bulk.upsert(Query.query(Criteria.where("_id").is(recipient)), update);
+        }
+        bulk.execute();
+        logger.debug("Fanned out post {} to {} timelines", post.getId(), recipients.size());
+    }
+
+    public List<PostDTO> getHomeTimeline(String userId, int page, int size) {
+        if (userId == null || userId.trim().isEmpty()) {
+            throw new IllegalArgumentException("User ID is required");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+
+        int window = (page + 1) * size;
+
+        Query timelineQuery = Query.query(Criteria.where("_id").is(userId));
+        timelineQuery.fields().slice("postIds", window);
+        Timeline timeline = mongoTemplate.findOne(timelineQuery, Timeline.class);
+
+        Map<String, Post> merged = new HashMap<>();
+        if (timeline != null && !timeline.getPostIds().isEmpty()) {
+            merged.putAll(postCache.getAll(timeline.getPostIds()));
+        }
+
+        Set<String> pulled = followedLargeAccounts(userId);
+        if (!pulled.isEmpty()) {
+            PageRequest recent = PageRequest.of(0, window, Sort.by(Sort.Direction.DESC, "createdAt"));
+            postRepository.findByUserIdIn(pulled, recent).forEach(post -> merged.put(post.getId(), post));
+        }
+
+        List<Post> ordered = merged.values().stream()
+            .sorted(Comparator.comparing(Post::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())))
+            .skip((long) page * size)
+            .limit(size)
+            .collect(Collectors.toList());
+
+        return postHydrator.hydrate(ordered, userId);
+    }
+
+    private Set<String> followedLargeAccounts(String userId) {
+        if (largeAccounts.isEmpty()) {
+            return Set.of();
+        }
+        return followService.followedAmong(userId, largeAccounts);
+    }
+}
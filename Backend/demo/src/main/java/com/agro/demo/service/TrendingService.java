@@ -0,0 +1,236 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Post;
+import com.agro.demo.model.PostDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+/**
+ * Ranks recent posts by engagement with gravity decay:
+ * score = (likes + 2 * comments + 3 * saves + 1) / (ageHours + 2)^gravity.
+ *
+ * Counters are seeded from the post counters at startup and updated in memory
+ * as likes, comments and saves happen, so serving the trending feed never
+ * touches the likes or comments collections.
+ * Scores are recomputed on every change and the whole ranking is rebuilt
+ * periodically so that age decay is applied to posts that stopped changing.
+ */
+@Service
+public class TrendingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final PostCache postCache;
+    private final PostHydrator postHydrator;
+
+    @Value("${trending.window-hours:168}")
+    private long windowHours;
+
+    @Value("${trending.gravity:1.8}")
+    private double gravity;
+
+    private final Map<String, Engagement> engagements = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<RankedPost> ranking = new ConcurrentSkipListSet<>(
+        Comparator.comparingDouble(RankedPost::getScore).reversed().thenComparing(RankedPost::getPostId));
+
+    public TrendingService(MongoTemplate mongoTemplate, PostCache postCache, PostHydrator postHydrator) {
+        this.mongoTemplate = mongoTemplate;
+        this.postCache = postCache;
+        this.postHydrator = postHydrator;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        try {
+            LocalDateTime since = LocalDateTime.now().minusHours(windowHours);
+            Query recent = new Query(Criteria.where("createdAt").gte(since));
+            recent.fields().include("_id").include("createdAt")
+                .include("likeCount").include("commentCount").include("saveCount");
+            List<Post> posts = mongoTemplate.find(recent, Post.class);
+            if (posts.isEmpty()) {
+                return;
+            }
+
+            // Seeded from the denormalized counters on each post
+            for (Post post : posts) {
+                Engagement engagement = new Engagement(post.getCreatedAt());
+                engagement.likes = (int) post.getLikeCount();
+                engagement.comments = (int) post.getCommentCount();
+                engagement.saves = (int) post.getSaveCount();
+                engagements.put(post.getId(), engagement);
+            }
+            rebuild();
+            logger.info("Trending engine loaded {} recent posts", engagements.size());
+        } catch (Exception e) {
+            logger.error("Failed to bootstrap trending engine: {}", e.getMessage());
+        }
+    }
+
+    public void onPostCreated(Post post) {
+        engagements.put(post.getId(), new Engagement(post.getCreatedAt()));
+        rescore(post.getId());
+    }
+
+    public void onPostDeleted(String postId) {
+        Engagement engagement = engagements.remove(postId);
+        if (engagement != null) {
+            retire(engagement);
+        }
+    }
+
+    public void onLike(String postId, int delta) {
+        Engagement engagement = engagements.get(postId);
+        if (engagement != null) {
+            synchronized (engagement) {
+                engagement.likes = Math.max(0, engagement.likes + delta);
+            }
+            rescore(postId);
+        }
+    }
+
+    public void onComment(String postId, int delta) {
+        Engagement engagement = engagements.get(postId);
+        if (engagement != null) {
+            synchronized (engagement) {
+                engagement.comments = Math.max(0, engagement.comments + delta);
+            }
+            rescore(postId);
+        }
+    }
+
+    public void onSave(String postId, int delta) {
+        Engagement engagement = engagements.get(postId);
+        if (engagement != null) {
+            synchronized (engagement) {
+                engagement.saves = Math.max(0, engagement.saves + delta);
+            }
+            rescore(postId);
+        }
+    }
+
+    public List<PostDTO> getTrending(int page, int size, String viewerId) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+
+        List<String> topIds = ranking.stream()
+            .skip((long) page * size)
+            .limit(size)
+            .map(RankedPost::getPostId)
+            .collect(Collectors.toList());
+        if (topIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, Post> postsById = postCache.getAll(topIds);
+        List<Post> ordered = topIds.stream()
+            .map(postsById::get)
+            .filter(post -> post != null)
+            .collect(Collectors.toList());
+        return postHydrator.hydrate(ordered, viewerId);
+    }
+
+    @Scheduled(fixedDelayString = "${trending.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(windowHours);
+        engagements.entrySet().removeIf(entry -> {
+            LocalDateTime createdAt = entry.getValue().createdAt;
+            boolean expired = createdAt == null || createdAt.isBefore(cutoff);
+            if (expired) {
+                retire(entry.getValue());
+            }
+            return expired;
+        });
+        engagements.keySet().forEach(this::rescore);
+        logger.debug("Rebuilt trending ranking with {} posts", ranking.size());
+    }
+
+    private void rescore(String postId) {
+        Engagement engagement = engagements.get(postId);
+        if (engagement == null) {
+            return;
+        }
+        synchronized (engagement) {
+            // Removed after we looked it up; re-adding it would leave a deleted
+            // post ranked until restart, since rebuild only walks engagements
+            if (engagement.deleted || engagements.get(postId) != engagement) {
+                return;
+            }
+            if (engagement.ranked != null) {
+                ranking.remove(engagement.ranked);
+            }
+            engagement.ranked = new RankedPost(postId, score(engagement));
+            ranking.add(engagement.ranked);
+        }
+    }
+
+    private void retire(Engagement engagement) {
+        synchronized (engagement) {
+            engagement.deleted = true;
+            if (engagement.ranked != null) {
+                ranking.remove(engagement.ranked);
+                engagement.ranked = null;
+            }
+        }
+    }
+
+    private double score(Engagement engagement) {
+        double points = engagement.likes + 2.0 * engagement.comments + 3.0 * engagement.saves + 1.0;
+        LocalDateTime createdAt = engagement.createdAt != null ? engagement.createdAt : LocalDateTime.now();
+        double ageHours = Math.max(0, Duration.between(createdAt, LocalDateTime.now()).toMinutes() / 60.0);
+        return points / Math.pow(ageHours + 2.0, gravity);
+    }
+
+    private static class Engagement {
+        private final LocalDateTime createdAt;
+        private int likes;
+        private int comments;
+        private int saves;
+        private RankedPost ranked; // current entry in the ranking, guarded by this
+        private boolean deleted;   // no longer in engagements, guarded by this
+
+        Engagement(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static class RankedPost {
+        private final String postId;
+        private final double score;
+
+        RankedPost(String postId, double score) {
+            this.postId = postId;
+            this.score = score;
+        }
+
+        String getPostId() {
+            return postId;
+        }
+
+        double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.UserSummary;
+import com.agro.demo.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves user IDs to display summaries (name, photo, counts) for posts,
+ * comments, notifications and conversations.
+ *
+ * Summaries are kept in a bounded LRU cache; all IDs missing from it are
+ * loaded with a single projected $in query. Every write to a user document
+ * must call invalidate once the write has completed. A load that read the
+ * user before such an invalidation re-checks after caching its result and
+ * drops it, so a concurrent lookup cannot put the old summary back. Cache
+ * metrics are published under cache.* with cache=users.
+ */
+@Service
+public class UserDirectory {
+
+    private final UserRepository userRepository;
+    private final Cache<String, UserSummary> cache;
+    // Logical time of the last invalidate per user, kept long enough to outlive any in-flight load
+    private final Cache<String, Long> invalidatedAt;
+    private final AtomicLong clock = new AtomicLong();
+
+    public UserDirectory(UserRepository userRepository, MeterRegistry meterRegistry,
+                         @Value("${user-directory.maximum-size:10000}") long maximumSize,
+                         @Value("${user-directory.expire-after-write-seconds:600}") long expireAfterWriteSeconds) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+        this.invalidatedAt = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .maximumSize(maximumSize)
+            .build();
+    }
+
+    public Optional<UserSummary> get(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(getMany(Set.of(id)).get(id));
+    }
+
+    // Unknown IDs are simply absent from the result
+    public Map<String, UserSummary> getMany(Collection<String> ids) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id != null) {
+                distinct.add(id);
+            }
+        }
+        if (distinct.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<String, UserSummary> result = new HashMap<>(cache.getAllPresent(distinct));
+        if (result.size() == distinct.size()) {
+            return result;
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String id : distinct) {
+            if (!result.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        long started = clock.get();
+        for (UserSummary summary : userRepository.findSummariesByIdIn(missing)) {
+            result.put(summary.getId(), summary);
+            cache.put(summary.getId(), summary);
+            // Invalidated while we were reading: what we cached may predate the write
+            Long invalidated = invalidatedAt.getIfPresent(summary.getId());
+            if (invalidated != null && invalidated > started) {
+                cache.invalidate(summary.getId());
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(String id) {
+        if (id != null) {
+            invalidatedAt.put(id, clock.incrementAndGet());
+            cache.invalidate(id);
+        }
+    }
+}
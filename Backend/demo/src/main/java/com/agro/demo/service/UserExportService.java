@@ -0,0 +1,145 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.CursorSlice;
+import com.agro.demo.model.User;
+import com.agro.demo.model.UserExportRow;
+import com.agro.demo.model.UserSummary;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Reads the whole users collection without holding it in memory.
+ *
+ * The streaming exports walk a Mongo cursor in _id order and write each
+ * UserExportRow to the response as soon as it is read; a slow client blocks
+ * the write, which in turn stops the cursor from fetching the next batch.
+ * The paginated variants use the last _id of a page as their cursor: the
+ * admin list reads export rows, the people directory only UserSummary.
+ */
+@Service
+public class UserExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    // Flushing is left to forEachSummary, once per batch rather than once per row
+    private final ObjectWriter rowWriter;
+
+    @Value("${user-export.batch-size:500}")
+    private int batchSize;
+
+    public UserExportService(MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes one JSON object per line (NDJSON).
+     */
+    public void writeNdjson(OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            // Root values are separated by the newline instead of Jackson's default space
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            long written = forEachRow(row -> rowWriter.writeValue(generator, row), generator);
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+            logger.info("Exported {} users as NDJSON", written);
+        }
+    }
+
+    /**
+     * Writes a single JSON array, for clients that expect the old list response.
+     */
+    public void writeJsonArray(OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            forEachRow(row -> rowWriter.writeValue(generator, row), generator);
+            generator.writeEndArray();
+        }
+    }
+
+    public CursorSlice<UserExportRow> getPage(String cursor, int size) {
+        return page(cursor, size, UserExportRow.class, UserExportRow.FIELDS, UserExportRow::getId);
+    }
+
+    public CursorSlice<UserSummary> getSummaryPage(String cursor, int size) {
+        return page(cursor, size, UserSummary.class, UserSummary.FIELDS, UserSummary::getId);
+    }
+
+    private <T> CursorSlice<T> page(String cursor, int size, Class<T> type, String[] fields, Function<T, String> idOf) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+
+        Query query = projectedQuery(fields);
+        if (cursor != null) {
+            if (!ObjectId.isValid(cursor)) {
+                throw new IllegalArgumentException("Invalid user cursor");
+            }
+            query.addCriteria(Criteria.where("_id").gt(new ObjectId(cursor)));
+        }
+        // One extra row tells whether another page exists
+        query.limit(size + 1);
+
+        List<T> rows = mongoTemplate.find(query, type, mongoTemplate.getCollectionName(User.class));
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? idOf.apply(content.get(content.size() - 1)) : null;
+        return new CursorSlice<>(content, hasNext, nextCursor);
+    }
+
+    private long forEachRow(RowWriter writer, JsonGenerator generator) throws IOException {
+        Query query = projectedQuery(UserExportRow.FIELDS).cursorBatchSize(batchSize);
+        long written = 0;
+        try (Stream<UserExportRow> stream = mongoTemplate.stream(query, UserExportRow.class,
+                mongoTemplate.getCollectionName(User.class))) {
+            Iterator<UserExportRow> cursor = stream.iterator();
+            while (cursor.hasNext()) {
+                writer.write(cursor.next());
+                if (++written % batchSize == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        return written;
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private static Query projectedQuery(String[] fields) {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id"));
+        query.fields().include(fields);
+        return query;
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(UserExportRow row) throws IOException;
+    }
+}
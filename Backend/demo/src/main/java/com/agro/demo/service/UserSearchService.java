@@ -0,0 +1,48 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.User;
+import com.agro.demo.model.UserSummary;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * User search over the weighted text index on name, email and about.
+ * Results are ranked by text score and read one page at a time, so the
+ * cost follows the number of matches rather than the size of the users
+ * collection. Mongo keeps the index current on register and profile update.
+ */
+@Service
+public class UserSearchService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserSearchService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public List<UserSummary> search(String query, int page, int size) {
+        if (query == null || query.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("Page number cannot be negative");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+
+        TextCriteria criteria = TextCriteria.forDefaultLanguage().matching(query.trim());
+        Query textQuery = TextQuery.queryText(criteria)
+            .sortByScore()
+            .with(PageRequest.of(page, size));
+        textQuery.fields().include(UserSummary.FIELDS);
+        return mongoTemplate.find(textQuery, UserSummary.class, mongoTemplate.getCollectionName(User.class));
+    }
+}
@@ -14,6 +14,9 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserDirectory userDirectory;
+
     // Get all users
     public List<User> getAllUsers() {
         return userRepository.findAll();
@@ -26,17 +29,22 @@ public class UserService {
 
     // Save a new user
     public User saveUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userDirectory.invalidate(saved.getId());
+        return saved;
     }
 
     // Update an existing user
     public User updateUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userDirectory.invalidate(saved.getId());
+        return saved;
     }
 
     // Delete a user by their ID
     public void deleteUser(String id) {
         userRepository.deleteById(id);
+        userDirectory.invalidate(id);
     }
 }
 
@@ -0,0 +1,189 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.User;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory prefix index of user names for typeahead.
+ *
+ * Normalized first name, last name and full name are kept in a sorted
+ * concurrent map as "term\0userId" keys, so a prefix lookup is a single
+ * ordered range scan feeding a bounded heap of the most-followed matches.
+ * The index is loaded at startup and updated as users register, sign in
+ * through OAuth2, edit their profile or gain followers.
+ */
+@Service
+public class UserSuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSuggestionIndex.class);
+    private static final char SEPARATOR = '\0';
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ConcurrentSkipListMap<String, String> terms = new ConcurrentSkipListMap<>();
+    private final Map<String, Suggestion> suggestions = new ConcurrentHashMap<>();
+
+    public UserSuggestionIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            Query query = new Query();
+            query.fields().include("firstName").include("lastName").include("profilePhoto").include("followerCount");
+            int loaded = 0;
+            for (Document row : mongoTemplate.find(query, Document.class, "users")) {
+                Number followerCount = row.get("followerCount", Number.class);
+                put(new Suggestion(row.get("_id").toString(), row.getString("firstName"),
+                    row.getString("lastName"), row.getString("profilePhoto"),
+                    followerCount != null ? followerCount.intValue() : 0));
+                loaded++;
+            }
+            logger.info("User suggestion index loaded {} users", loaded);
+        } catch (Exception e) {
+            logger.error("Failed to build user suggestion index: {}", e.getMessage());
+        }
+    }
+
+    public void index(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        put(new Suggestion(user.getId(), user.getFirstName(), user.getLastName(), user.getProfilePhoto(),
+            (int) user.getFollowerCount()));
+    }
+
+    public synchronized void adjustFollowerCount(String userId, int delta) {
+        Suggestion current = suggestions.get(userId);
+        if (current != null) {
+            suggestions.put(userId, new Suggestion(current.getId(), current.getFirstName(), current.getLastName(),
+                current.getProfilePhoto(), Math.max(0, current.getFollowerCount() + delta)));
+        }
+    }
+
+    public synchronized void remove(String userId) {
+        Suggestion previous = suggestions.remove(userId);
+        if (previous != null) {
+            termsFor(previous).forEach(term -> terms.remove(term + SEPARATOR + userId));
+        }
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Top-K by follower count over the whole prefix range, kept in a min-heap of size limit
+        ConcurrentNavigableMap<String, String> range = terms.subMap(normalized, true, normalized + Character.MAX_VALUE, false);
+        Comparator<Suggestion> byFollowers = Comparator.comparingInt(Suggestion::getFollowerCount);
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(limit + 1, byFollowers);
+        Set<String> seen = new HashSet<>();
+        for (String userId : range.values()) {
+            if (!seen.add(userId)) {
+                continue; // matched on more than one of first, last and full name
+            }
+            Suggestion suggestion = suggestions.get(userId);
+            if (suggestion == null) {
+                continue;
+            }
+            if (top.size() < limit) {
+                top.add(suggestion);
+            } else if (suggestion.getFollowerCount() > top.peek().getFollowerCount()) {
+                top.poll();
+                top.add(suggestion);
+            }
+        }
+
+        List<Suggestion> result = new ArrayList<>(top);
+        result.sort(byFollowers.reversed());
+        return result;
+    }
+
+    // Writes are rare and serialized; lookups never block
+    private synchronized void put(Suggestion suggestion) {
+        remove(suggestion.getId());
+        suggestions.put(suggestion.getId(), suggestion);
+        termsFor(suggestion).forEach(term -> terms.put(term + SEPARATOR + suggestion.getId(), suggestion.getId()));
+    }
+
+    private static Set<String> termsFor(Suggestion suggestion) {
+        Set<String> result = new LinkedHashSet<>();
+        String first = normalize(suggestion.getFirstName());
+        String last = normalize(suggestion.getLastName());
+        if (!first.isEmpty()) {
+            result.add(first);
+        }
+        if (!last.isEmpty()) {
+            result.add(last);
+        }
+        if (!first.isEmpty() && !last.isEmpty()) {
+            result.add(first + " " + last);
+        }
+        return result;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public static class Suggestion {
+        private final String id;
+        private final String firstName;
+        private final String lastName;
+        private final String profilePhoto;
+        private final int followerCount;
+
+        public Suggestion(String id, String firstName, String lastName, String profilePhoto, int followerCount) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.profilePhoto = profilePhoto;
+            this.followerCount = followerCount;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getFirstName() {
+            return firstName;
+        }
+
+        public String getLastName() {
+            return lastName;
+        }
+
+        public String getProfilePhoto() {
+            return profilePhoto;
+        }
+
+        public int getFollowerCount() {
+            return followerCount;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Like;
+import com.agro.demo.model.SavedPost;
+import com.agro.demo.repository.LikeRepository;
+import com.agro.demo.repository.SavedPostRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves whether a viewer has liked or saved a batch of posts with one
+ * $in query per collection.
+ */
+@Service
+public class ViewerStateService {
+
+    private final LikeRepository likeRepository;
+    private final SavedPostRepository savedPostRepository;
+
+    public ViewerStateService(LikeRepository likeRepository, SavedPostRepository savedPostRepository) {
+        this.likeRepository = likeRepository;
+        this.savedPostRepository = savedPostRepository;
+    }
+
+    public Set<String> likedPostIds(String userId, Collection<String> postIds) {
+        if (userId == null || postIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return likeRepository.findPostIdsByUserIdAndPostIdIn(userId, postIds).stream()
+            .map(Like::getPostId)
+            .collect(Collectors.toSet());
+    }
+
+    public Set<String> savedPostIds(String userId, Collection<String> postIds) {
+        if (userId == null || postIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return savedPostRepository.findPostIdsByUserIdAndPostIdIn(userId, postIds).stream()
+            .map(SavedPost::getPostId)
+            .collect(Collectors.toSet());
+    }
+
+    public Map<String, Map<String, Boolean>> getViewerState(String userId, Collection<String> postIds) {
+        Set<String> liked = likedPostIds(userId, postIds);
+        Set<String> saved = savedPostIds(userId, postIds);
+
+        Map<String, Map<String, Boolean>> state = new LinkedHashMap<>();
+        for (String postId : postIds) {
+            Map<String, Boolean> flags = new HashMap<>();
+            flags.put("liked", liked.contains(postId));
+            flags.put("saved", saved.contains(postId));
+            state.put(postId, flags);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,50 @@
+package com.agro.demo.util;
+
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Opaque (createdAt, id) position in the feed, used for keyset pagination.
+ * Encoded as URL-safe base64 so clients treat it as a token.
+ */
+public final class FeedCursor {
+
+    private final LocalDateTime createdAt;
+    private final ObjectId id;
+
+    public FeedCursor(LocalDateTime createdAt, ObjectId id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public String encode() {
+        long millis = createdAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+        String raw = millis + ":" + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static FeedCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long millis = Long.parseLong(raw.substring(0, separator));
+            ObjectId id = new ObjectId(raw.substring(separator + 1));
+            return new FeedCursor(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC), id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid feed cursor");
+        }
+    }
+}
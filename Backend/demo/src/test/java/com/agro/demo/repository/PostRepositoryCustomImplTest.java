@@ -0,0 +1,79 @@
+package com.agro.demo.repository;
+
+import com.agro.demo.model.Post;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class PostRepositoryCustomImplTest {
+
+    private MongoTemplate mongoTemplate;
+    private PostRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        repository = new PostRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @Test
+    void incrementCounterIsASingleIncOnThePost() {
+        repository.incrementCounter("p1", "likeCount", -1);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Post.class));
+
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("_id", "p1"));
+        assertThat(update.getValue().getUpdateObject())
+            .isEqualTo(new Document("$inc", new Document("likeCount", -1L)));
+    }
+
+    @Test
+    void updateContentNeverWritesTheCounters() {
+        Post post = new Post("p1", "u1", "new text", "caption", null, null, null);
+        post.setLikeCount(7);
+        post.setCommentCount(3);
+        post.setSaveCount(1);
+
+        repository.updateContent(post);
+
+        Document update = captureUpdate();
+        assertThat(update.keySet()).containsExactlyInAnyOrder("$set", "$unset");
+        assertThat(update.get("$set", Document.class))
+            .containsOnlyKeys("caption", "content")
+            .containsEntry("content", "new text");
+        assertThat(update.get("$unset", Document.class)).containsOnlyKeys("imageUrls", "videoUrl");
+        assertThat(update.toJson()).doesNotContain("likeCount", "commentCount", "saveCount", "userId", "createdAt");
+    }
+
+    @Test
+    void updateContentUnsetsClearedFields() {
+        Post post = new Post("p1", "u1", null, null, List.of("a.jpg"), null, null);
+
+        repository.updateContent(post);
+
+        Document update = captureUpdate();
+        assertThat(update.get("$set", Document.class)).containsOnlyKeys("imageUrls");
+        assertThat(update.get("$unset", Document.class)).containsOnlyKeys("caption", "content", "videoUrl");
+    }
+
+    private Document captureUpdate() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Post.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("_id", "p1"));
+        return update.getValue().getUpdateObject();
+    }
+}
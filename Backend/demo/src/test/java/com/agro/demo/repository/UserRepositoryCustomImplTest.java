@@ -0,0 +1,64 @@
+package com.agro.demo.repository;
+
+import com.agro.demo.model.User;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class UserRepositoryCustomImplTest {
+
+    private MongoTemplate mongoTemplate;
+    private UserRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        repository = new UserRepositoryCustomImpl(mongoTemplate);
+    }
+
+    @Test
+    void updateFieldsSetsOnlyTheGivenFields() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("firstName", "Ada");
+        fields.put("bio", "Grows maize");
+
+        repository.updateFields("u1", fields);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(User.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("_id", "u1"));
+        assertThat(update.getValue().getUpdateObject()).isEqualTo(new Document("$set",
+            new Document("firstName", "Ada").append("bio", "Grows maize")));
+    }
+
+    @Test
+    void updateFieldsWithNothingToChangeSkipsTheWrite() {
+        repository.updateFields("u1", Map.of());
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void updateFieldsNeverTouchesFollowCounters() {
+        repository.updateFields("u1", Map.of("lastName", "Lovelace"));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(User.class));
+        assertThat(update.getValue().getUpdateObject().toJson()).doesNotContain("followerCount", "followingCount");
+    }
+}
@@ -0,0 +1,280 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Conversation;
+import com.agro.demo.model.Message;
+import com.agro.demo.model.UnreadCounter;
+import com.agro.demo.repository.MessageRepository;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class ConversationServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private MongoTemplate mongoTemplate;
+    private ConversationService conversationService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        conversationService = new ConversationService(mongoTemplate, mock(MessageRepository.class));
+    }
+
+    @Test
+    void sendingUpsertsTheConversationAndBumpsTheReceiversUnread() {
+        Message message = message("m1", "bob", "alice", "hello", NOW, false);
+
+        conversationService.onMessageSent(message);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(Conversation.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("_id", "alice_bob"));
+
+        Document conversation = update.getValue().getUpdateObject();
+        assertThat(conversation.get("$setOnInsert", Document.class)).isEqualTo(new Document("userA", "alice")
+            .append("userB", "bob")
+            .append("participants", List.of("alice", "bob")));
+        assertThat(conversation.get("$set", Document.class))
+            .containsEntry("lastMessageId", "m1")
+            .containsEntry("lastMessageContent", "hello")
+            .containsEntry("lastSenderId", "bob")
+            .containsEntry("lastMessageAt", NOW);
+        // alice is userA and the receiver
+        assertThat(conversation.get("$inc", Document.class))
+            .isEqualTo(new Document("messageCount", 1).append("unreadA", 1));
+
+        verify(mongoTemplate).upsert(eq(Query.query(Criteria.where("_id").is("alice"))),
+            eq(new Update().inc("count", 1L)), eq(UnreadCounter.class));
+    }
+
+    @Test
+    void inboxFetchesOneExtraRowToDetectTheNextPage() {
+        List<Conversation> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Conversation conversation = new Conversation();
+            conversation.setId("c" + i);
+            rows.add(conversation);
+        }
+        when(mongoTemplate.find(any(Query.class), eq(Conversation.class))).thenReturn(rows);
+
+        Slice<Conversation> page = conversationService.getInbox("alice", 1, 2);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(Conversation.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("participants", "alice"));
+        assertThat(query.getValue().getSortObject()).isEqualTo(new Document("lastMessageAt", -1));
+        assertThat(query.getValue().getSkip()).isEqualTo(2);
+        assertThat(query.getValue().getLimit()).isEqualTo(3);
+        assertThat(page.getContent()).extracting(Conversation::getId).containsExactly("c0", "c1");
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void backfillBuildsConversationsAndUnreadCountsFromMessages() {
+        when(mongoTemplate.exists(any(Query.class), eq(Conversation.class))).thenReturn(false);
+        when(mongoTemplate.exists(any(Query.class), eq(Message.class))).thenReturn(true);
+        when(mongoTemplate.stream(any(Query.class), eq(Message.class))).thenReturn(Stream.of(
+            message("m1", "alice", "bob", "hi", NOW, true),
+            message("m2", "bob", "alice", "hey", NOW.plusMinutes(1), false),
+            message("m3", "bob", "alice", "you there?", NOW.plusMinutes(2), false),
+            message("m4", "carol", "alice", "morning", NOW.plusMinutes(3), false)));
+
+        conversationService.backfill();
+
+        ArgumentCaptor<Collection<Conversation>> inserted = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insertAll(inserted.capture());
+        List<Conversation> conversations = new ArrayList<>(inserted.getValue());
+        assertThat(conversations).extracting(Conversation::getId).containsExactly("alice_bob", "alice_carol");
+
+        Conversation aliceBob = conversations.get(0);
+        assertThat(aliceBob.getMessageCount()).isEqualTo(3);
+        assertThat(aliceBob.getUnreadA()).isEqualTo(2);
+        assertThat(aliceBob.getUnreadB()).isZero();
+        assertThat(aliceBob.getLastMessageId()).isEqualTo("m3");
+        assertThat(aliceBob.getLastSenderId()).isEqualTo("bob");
+        assertThat(aliceBob.getParticipants()).containsExactly("alice", "bob");
+    }
+
+    @Test
+    void backfillLeavesAnExistingConversationsCollectionAlone() {
+        when(mongoTemplate.exists(any(Query.class), eq(Conversation.class))).thenReturn(true);
+
+        conversationService.backfill();
+
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(Message.class));
+        verify(mongoTemplate, never()).insertAll(anyCollection());
+    }
+
+    @Test
+    void markReadDecrementsOnlyWhenTheMessageFlipped() {
+        Message message = message("m1", "bob", "alice", "hello", NOW, false);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Message.class)))
+            .thenReturn(UpdateResult.acknowledged(1, 1L, null))
+            .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertThat(conversationService.markRead(message)).isTrue();
+        // A second reader raced us to it
+        assertThat(conversationService.markRead(message)).isFalse();
+
+        ArgumentCaptor<Query> flip = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateFirst(flip.capture(), eq(new Update().set("isRead", true)), eq(Message.class));
+        assertThat(flip.getValue().getQueryObject()).isEqualTo(new Document("_id", "m1").append("isRead", false));
+
+        verify(mongoTemplate).updateFirst(eq(Query.query(Criteria.where("_id").is("alice_bob"))),
+            eq(new Update().inc("unreadA", -1)), eq(Conversation.class));
+        verify(mongoTemplate).upsert(eq(Query.query(Criteria.where("_id").is("alice"))),
+            eq(new Update().inc("count", -1L)), eq(UnreadCounter.class));
+    }
+
+    @Test
+    void markConversationReadSubtractsTheNumberActuallyFlipped() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Message.class)))
+            .thenReturn(UpdateResult.acknowledged(5, 3L, null));
+
+        assertThat(conversationService.markConversationRead("bob", "alice", NOW)).isEqualTo(3);
+
+        ArgumentCaptor<Query> unread = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateMulti(unread.capture(), eq(new Update().set("isRead", true)), eq(Message.class));
+        assertThat(unread.getValue().getQueryObject()).isEqualTo(new Document("conversationId", "alice_bob")
+            .append("receiverId", "bob")
+            .append("isRead", false)
+            .append("timestamp", new Document("$lte", NOW)));
+
+        // bob is userB
+        verify(mongoTemplate).updateFirst(eq(Query.query(Criteria.where("_id").is("alice_bob"))),
+            eq(new Update().inc("unreadB", -3L)), eq(Conversation.class));
+        verify(mongoTemplate).upsert(eq(Query.query(Criteria.where("_id").is("bob"))),
+            eq(new Update().inc("count", -3L)), eq(UnreadCounter.class));
+    }
+
+    @Test
+    void markConversationReadWithNothingUnreadLeavesTheCountersAlone() {
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Message.class)))
+            .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertThat(conversationService.markConversationRead("bob", "alice", NOW)).isZero();
+
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(Message.class));
+        verifyNoMoreInteractions(mongoTemplate);
+    }
+
+    @Test
+    void editingSetsOnlyTheContentSoAConcurrentReadSticks() {
+        Message message = message("m1", "bob", "alice", "hello", NOW, false);
+
+        conversationService.editMessage(message, "hello again");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(Message.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("_id", "m1"));
+        assertThat(update.getValue().getUpdateObject())
+            .isEqualTo(new Document("$set", new Document("content", "hello again")));
+        verify(mongoTemplate, never()).save(any(Message.class));
+
+        // The inbox preview only follows when this is the latest message
+        ArgumentCaptor<Query> preview = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(preview.capture(),
+            eq(new Update().set("lastMessageContent", "hello again")), eq(Conversation.class));
+        assertThat(preview.getValue().getQueryObject())
+            .isEqualTo(new Document("_id", "alice_bob").append("lastMessageId", "m1"));
+    }
+
+    @Test
+    void deletingAMessageReadAfterTheLookupLeavesTheUnreadCountsAlone() {
+        // The caller saw it unread, but it was marked read before the delete
+        Message seen = message("m1", "bob", "alice", "hello", NOW, false);
+        Message removed = message("m1", "bob", "alice", "hello", NOW, true);
+        Conversation remaining = new Conversation();
+        remaining.setMessageCount(2);
+        remaining.setLastMessageId("m2");
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Message.class))).thenReturn(removed);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(), eq(Conversation.class)))
+            .thenReturn(remaining);
+
+        assertThat(conversationService.deleteMessage(seen.getId())).isSameAs(removed);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findAndRemove(query.capture(), eq(Message.class));
+        assertThat(query.getValue().getQueryObject()).isEqualTo(new Document("_id", "m1"));
+        verify(mongoTemplate).findAndModify(eq(Query.query(Criteria.where("_id").is("alice_bob"))),
+            eq(new Update().inc("messageCount", -1)), any(), eq(Conversation.class));
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(UnreadCounter.class));
+    }
+
+    @Test
+    void deletingAnUnreadMessageDecrementsTheReceiversCounts() {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Message.class)))
+            .thenReturn(message("m1", "bob", "alice", "hello", NOW, false));
+
+        conversationService.deleteMessage("m1");
+
+        verify(mongoTemplate).findAndModify(eq(Query.query(Criteria.where("_id").is("alice_bob"))),
+            eq(new Update().inc("messageCount", -1).inc("unreadA", -1)), any(), eq(Conversation.class));
+        verify(mongoTemplate).upsert(eq(Query.query(Criteria.where("_id").is("alice"))),
+            eq(new Update().inc("count", -1L)), eq(UnreadCounter.class));
+    }
+
+    @Test
+    void deletingAnAlreadyDeletedMessageChangesNothing() {
+        assertThat(conversationService.deleteMessage("m1")).isNull();
+
+        verify(mongoTemplate).findAndRemove(any(Query.class), eq(Message.class));
+        verifyNoMoreInteractions(mongoTemplate);
+    }
+
+    @Test
+    void deletingAConversationReturnsBothSidesUnreadToTheirTotals() {
+        Conversation removed = new Conversation();
+        removed.setUserA("alice");
+        removed.setUserB("bob");
+        removed.setUnreadA(4);
+        when(mongoTemplate.remove(any(Query.class), eq(Message.class))).thenReturn(DeleteResult.acknowledged(6));
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(Conversation.class))).thenReturn(removed);
+
+        assertThat(conversationService.deleteConversation("bob", "alice")).isEqualTo(6);
+
+        verify(mongoTemplate).upsert(eq(Query.query(Criteria.where("_id").is("alice"))),
+            eq(new Update().inc("count", -4L)), eq(UnreadCounter.class));
+        // Nothing was unread for bob, so bob's counter is not written
+        verify(mongoTemplate, never()).upsert(eq(Query.query(Criteria.where("_id").is("bob"))),
+            any(Update.class), eq(UnreadCounter.class));
+    }
+
+    private static Message message(String id, String senderId, String receiverId, String content,
+                                   LocalDateTime timestamp, boolean read) {
+        Message message = new Message(senderId, receiverId, content);
+        message.setId(id);
+        message.setTimestamp(timestamp);
+        message.setRead(read);
+        return message;
+    }
+}
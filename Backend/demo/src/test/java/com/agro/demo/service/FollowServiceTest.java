@@ -0,0 +1,127 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Follow;
+import com.agro.demo.model.User;
+import com.agro.demo.repository.FollowRepository;
+import com.agro.demo.repository.UserRepository;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FollowServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private UserRepository userRepository;
+    private UserDirectory userDirectory;
+    private BulkOperations bulk;
+    private FollowService followService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        userRepository = mock(UserRepository.class);
+        userDirectory = mock(UserDirectory.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class)).thenReturn(bulk);
+        when(userRepository.existsById("bob")).thenReturn(true);
+        followService = new FollowService(mongoTemplate, mock(FollowRepository.class), userRepository, userDirectory);
+    }
+
+    @Test
+    void followUpsertsTheEdgeAndIncrementsBothCounts() {
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(Follow.class)))
+            .thenReturn(UpdateResult.acknowledged(0, 0L, new BsonObjectId()));
+
+        assertThat(followService.follow("alice", "bob")).isTrue();
+
+        ArgumentCaptor<Query> edge = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> insert = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(edge.capture(), insert.capture(), eq(Follow.class));
+        assertThat(edge.getValue().getQueryObject())
+            .isEqualTo(new Document("followerId", "alice").append("followeeId", "bob"));
+        assertThat(insert.getValue().getUpdateObject()).containsOnlyKeys("$setOnInsert");
+
+        List<Document> updates = capturedBulkUpdates(1);
+        assertThat(updates).containsExactlyInAnyOrder(
+            new Document("$inc", new Document("followingCount", 1)),
+            new Document("$inc", new Document("followerCount", 1)));
+        verify(bulk).execute();
+        verify(userDirectory).invalidate("alice");
+        verify(userDirectory).invalidate("bob");
+    }
+
+    @Test
+    void followingTwiceLeavesTheCountsAlone() {
+        // Upsert matched the existing edge, nothing inserted
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(Follow.class)))
+            .thenReturn(UpdateResult.acknowledged(1, 0L, null));
+
+        assertThat(followService.follow("alice", "bob")).isFalse();
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(User.class));
+        verify(bulk, never()).execute();
+    }
+
+    @Test
+    void losingTheInsertRaceLeavesTheCountsAlone() {
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(Follow.class)))
+            .thenThrow(new DuplicateKeyException("E11000 duplicate key"));
+
+        assertThat(followService.follow("alice", "bob")).isFalse();
+
+        verify(bulk, never()).execute();
+    }
+
+    @Test
+    void followRejectsSelfAndUnknownUsers() {
+        assertThatThrownBy(() -> followService.follow("alice", "alice"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> followService.follow("alice", "nobody"))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(Follow.class));
+    }
+
+    @Test
+    void unfollowDecrementsOnlyWhenAnEdgeWasRemoved() {
+        when(mongoTemplate.remove(any(Query.class), eq(Follow.class)))
+            .thenReturn(DeleteResult.acknowledged(1))
+            .thenReturn(DeleteResult.acknowledged(0));
+
+        assertThat(followService.unfollow("alice", "bob")).isTrue();
+        assertThat(followService.unfollow("alice", "bob")).isFalse();
+
+        List<Document> updates = capturedBulkUpdates(1);
+        assertThat(updates).containsExactlyInAnyOrder(
+            new Document("$inc", new Document("followingCount", -1)),
+            new Document("$inc", new Document("followerCount", -1)));
+        verify(bulk, times(1)).execute();
+    }
+
+    private List<Document> capturedBulkUpdates(int batches) {
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2 * batches)).updateOne(any(Query.class), updates.capture());
+        return updates.getAllValues().stream().map(Update::getUpdateObject).toList();
+    }
+}
@@ -0,0 +1,252 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Message;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageSearchIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @TempDir
+    Path indexPath;
+
+    @TempDir
+    Path crashedPath;
+
+    private MongoTemplate mongoTemplate;
+    private MessageSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mongoTemplate = mock(MongoTemplate.class);
+        index = new MessageSearchIndex(mongoTemplate, indexPath.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    void returnsMatchesNewestFirst() {
+        // Indexed out of order so that insertion order cannot pass for sorting
+        index.index(message("m2", "alice", "bob", "maize price is up", 2));
+        index.index(message("m3", "bob", "alice", "maize seeds arrived", 3));
+        index.index(message("m1", "alice", "bob", "maize harvest soon", 1));
+        index.refresh();
+
+        MessageSearchIndex.SearchResult result = index.search("alice", "maize", null, 0, 10);
+
+        assertThat(result.getTotalHits()).isEqualTo(3);
+        assertThat(result.getHits()).extracting(Message::getId).containsExactly("m3", "m2", "m1");
+        Message newest = result.getHits().get(0);
+        assertThat(newest.getSenderId()).isEqualTo("bob");
+        assertThat(newest.getReceiverId()).isEqualTo("alice");
+        assertThat(newest.getConversationId()).isEqualTo("alice_bob");
+        assertThat(newest.getTimestamp()).isEqualTo(START.plusMinutes(3));
+    }
+
+    @Test
+    void onlySearchesTheCallersConversations() {
+        index.index(message("m1", "alice", "bob", "cassava cuttings", 1));
+        index.index(message("m2", "carol", "dave", "cassava cuttings", 2));
+        index.refresh();
+
+        assertThat(index.search("alice", "cassava", null, 0, 10).getHits())
+            .extracting(Message::getId).containsExactly("m1");
+        assertThat(index.search("erin", "cassava", null, 0, 10).getHits()).isEmpty();
+    }
+
+    @Test
+    void withUserNarrowsToOneConversation() {
+        index.index(message("m1", "alice", "bob", "tractor for hire", 1));
+        index.index(message("m2", "carol", "alice", "tractor broke down", 2));
+        index.refresh();
+
+        assertThat(index.search("alice", "tractor", "carol", 0, 10).getHits())
+            .extracting(Message::getId).containsExactly("m2");
+    }
+
+    @Test
+    void pagesFollowTheNewestFirstOrder() {
+        for (int i = 1; i <= 5; i++) {
+            index.index(message("m" + i, "alice", "bob", "irrigation update " + i, i));
+        }
+        index.refresh();
+
+        assertThat(index.search("alice", "irrigation", null, 0, 2).getHits())
+            .extracting(Message::getId).containsExactly("m5", "m4");
+        assertThat(index.search("alice", "irrigation", null, 1, 2).getHits())
+            .extracting(Message::getId).containsExactly("m3", "m2");
+        MessageSearchIndex.SearchResult last = index.search("alice", "irrigation", null, 2, 2);
+        assertThat(last.getHits()).extracting(Message::getId).containsExactly("m1");
+        assertThat(last.getTotalHits()).isEqualTo(5);
+    }
+
+    @Test
+    void refusesPagesBeyondTheResultWindow() {
+        assertThat(index.search("alice", "anything", null, 9, 100).getHits()).isEmpty();
+        assertThatThrownBy(() -> index.search("alice", "anything", null, 10, 100))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search("alice", "anything", null, 0, 1001))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsBlankAndMalformedQueries() {
+        assertThatThrownBy(() -> index.search("alice", "  ", null, 0, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search("alice", "\"unclosed phrase", null, 0, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search("alice", "maize", null, -1, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void removedMessagesAndConversationsDropOutOfResults() {
+        index.index(message("m1", "alice", "bob", "fertilizer delivery", 1));
+        index.index(message("m2", "alice", "bob", "fertilizer invoice", 2));
+        index.index(message("m3", "alice", "carol", "fertilizer stock", 3));
+        index.refresh();
+
+        index.remove(message("m2", "alice", "bob", null, 2));
+        index.refresh();
+        assertThat(index.search("alice", "fertilizer", null, 0, 10).getHits())
+            .extracting(Message::getId).containsExactly("m3", "m1");
+
+        index.removeConversation("bob", "alice");
+        index.refresh();
+        assertThat(index.search("alice", "fertilizer", null, 0, 10).getHits())
+            .extracting(Message::getId).containsExactly("m3");
+    }
+
+    @Test
+    void reindexingAMessageReplacesTheOldContent() {
+        index.index(message("m1", "alice", "bob", "sorghum", 1));
+        index.index(message("m1", "alice", "bob", "millet", 1));
+        index.refresh();
+
+        assertThat(index.search("alice", "sorghum", null, 0, 10).getHits()).isEmpty();
+        assertThat(index.search("alice", "millet", null, 0, 10).getTotalHits()).isEqualTo(1);
+    }
+
+    @Test
+    void fillsReadStateFromMongoForTheReturnedPage() {
+        index.index(message("m1", "alice", "bob", "poultry feed", 1));
+        index.index(message("m2", "bob", "alice", "poultry vaccine", 2));
+        index.refresh();
+        Message read = new Message();
+        read.setId("m1");
+        read.setRead(true);
+        Message unread = new Message();
+        unread.setId("m2");
+        when(mongoTemplate.find(any(Query.class), eq(Message.class))).thenReturn(new ArrayList<>(List.of(read, unread)));
+
+        List<Message> hits = index.search("alice", "poultry", null, 0, 10).getHits();
+
+        assertThat(hits).extracting(Message::getId).containsExactly("m2", "m1");
+        assertThat(hits).extracting(Message::isRead).containsExactly(false, true);
+    }
+
+    @Test
+    void emptyIndexIsBuiltFromEveryMessage() {
+        when(mongoTemplate.stream(any(Query.class), eq(Message.class)))
+            .thenReturn(Stream.of(message("m1", "alice", "bob", "goat market", 1)));
+
+        index.catchUp();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(Message.class));
+        assertThat(query.getValue().getQueryObject()).isEmpty();
+        assertThat(index.search("alice", "goat", null, 0, 10).getTotalHits()).isEqualTo(1);
+    }
+
+    @Test
+    void messagesPastTheLastCommitAreReplayedAfterACrash() throws Exception {
+        index.index(message("m1", "alice", "bob", "rain forecast", 1));
+        index.index(message("m2", "alice", "bob", "rain gauge", 120));
+        index.commit();
+        index.index(message("m3", "bob", "alice", "rain tomorrow", 121));
+
+        MessageSearchIndex restarted = restartAfterCrash();
+        try {
+            when(mongoTemplate.stream(any(Query.class), eq(Message.class)))
+                .thenReturn(Stream.of(message("m3", "bob", "alice", "rain tomorrow", 121)));
+            assertThat(restarted.search("alice", "rain", null, 0, 10).getHits())
+                .extracting(Message::getId).containsExactly("m2", "m1");
+
+            restarted.catchUp();
+
+            ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+            verify(mongoTemplate).stream(query.capture(), eq(Message.class));
+            // Replays from the committed mark less the margin, not from the start
+            assertThat(query.getValue().getQueryObject())
+                .isEqualTo(new Document("timestamp", new Document("$gte", START.plusMinutes(119))));
+            assertThat(restarted.search("alice", "rain", null, 0, 10).getHits())
+                .extracting(Message::getId).containsExactly("m3", "m2", "m1");
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void editsAndDeletesSurviveACrash() throws Exception {
+        index.index(message("m1", "alice", "bob", "sell maize", 1));
+        index.index(message("m2", "alice", "bob", "sell beans", 2));
+        index.commit();
+        index.update(message("m1", "alice", "bob", "sell sorghum", 1));
+        index.remove(message("m2", "alice", "bob", null, 2));
+
+        MessageSearchIndex restarted = restartAfterCrash();
+        try {
+            assertThat(restarted.search("alice", "sorghum", null, 0, 10).getHits())
+                .extracting(Message::getId).containsExactly("m1");
+            assertThat(restarted.search("alice", "maize", null, 0, 10).getHits()).isEmpty();
+            assertThat(restarted.search("alice", "beans", null, 0, 10).getHits()).isEmpty();
+        } finally {
+            restarted.close();
+        }
+    }
+
+    // What kill -9 leaves on disk: the committed files, with the writer still holding its lock
+    private MessageSearchIndex restartAfterCrash() throws IOException {
+        try (Stream<Path> files = Files.list(indexPath)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().equals("write.lock")) {
+                    Files.copy(file, crashedPath.resolve(file.getFileName()));
+                }
+            }
+        }
+        return new MessageSearchIndex(mongoTemplate, crashedPath.toString());
+    }
+
+    private static Message message(String id, String senderId, String receiverId, String content, int minute) {
+        Message message = new Message(senderId, receiverId, content);
+        message.setId(id);
+        message.setTimestamp(START.plusMinutes(minute));
+        return message;
+    }
+}
@@ -0,0 +1,104 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Notification;
+import com.agro.demo.model.UserSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationPipelineTest {
+
+    private MongoTemplate mongoTemplate;
+    private UserDirectory userDirectory;
+    private BulkOperations bulk;
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        userDirectory = mock(UserDirectory.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class)).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+
+        UserSummary bob = new UserSummary();
+        bob.setId("bob");
+        bob.setFirstName("Bob");
+        bob.setLastName("Banda");
+        when(userDirectory.getMany(anyCollection())).thenReturn(Map.of("bob", bob));
+
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new NotificationPipeline(mongoTemplate, userDirectory, meterRegistry, 100);
+        ReflectionTestUtils.setField(pipeline, "batchSize", 50);
+        ReflectionTestUtils.setField(pipeline, "flushIntervalMs", 10L);
+        ReflectionTestUtils.setField(pipeline, "maxAttempts", 3);
+        ReflectionTestUtils.setField(pipeline, "retryBackoffMs", 1L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pipeline.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedBatchIsRetriedWithTheSameNotificationIds() {
+        when(bulk.execute())
+            .thenThrow(new DataAccessResourceFailureException("connection refused"))
+            .thenReturn(null);
+        pipeline.start();
+
+        pipeline.publish("alice", "bob", "p1", "LIKE", null);
+
+        ArgumentCaptor<List<Notification>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bulk, timeout(2000).times(2)).execute();
+        verify(bulk, times(2)).insert(inserted.capture());
+        List<String> firstIds = ids(inserted.getAllValues().get(0));
+        assertThat(firstIds).hasSize(1);
+        assertThat(ids(inserted.getAllValues().get(1))).isEqualTo(firstIds);
+        assertThat(inserted.getAllValues().get(1).get(0).getContent()).isEqualTo("Bob Banda liked your post");
+        assertThat(meterRegistry.counter("notifications.dropped").count()).isZero();
+    }
+
+    @Test
+    void batchIsCountedAsDroppedOnceEveryAttemptFails() {
+        when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("connection refused"));
+        pipeline.start();
+
+        pipeline.publish("alice", "bob", "p1", "LIKE", null);
+        pipeline.publish("carol", "bob", "p2", "COMMENT", "nice");
+
+        verify(bulk, timeout(2000).atLeast(3)).execute();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (meterRegistry.counter("notifications.dropped").count() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(meterRegistry.counter("notifications.dropped").count()).isEqualTo(2);
+    }
+
+    private static List<String> ids(List<Notification> notifications) {
+        List<String> ids = new ArrayList<>();
+        notifications.forEach(notification -> ids.add(notification.getId()));
+        return ids;
+    }
+}
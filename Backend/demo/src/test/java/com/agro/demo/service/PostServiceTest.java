@@ -0,0 +1,61 @@
+package com.agro.demo.service;
+
+import com.agro.demo.model.Post;
+import com.agro.demo.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PostServiceTest {
+
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private PostCache postCache;
+
+    @InjectMocks
+    private PostService postService;
+
+    @Test
+    void updatePostWritesOnlyTheEditedFields() throws Exception {
+        Post existing = new Post("p1", "u1", "old text", "old caption", null, null, null);
+        existing.setLikeCount(5);
+        when(postRepository.findById("p1")).thenReturn(Optional.of(existing));
+
+        Post edit = new Post();
+        edit.setCaption("new caption");
+        edit.setContent("new text");
+        postService.updatePost("p1", "u1", edit, null, null);
+
+        ArgumentCaptor<Post> written = ArgumentCaptor.forClass(Post.class);
+        verify(postRepository).updateContent(written.capture());
+        verify(postRepository, never()).save(any());
+        verify(postCache).invalidate("p1");
+        assertThat(written.getValue().getCaption()).isEqualTo("new caption");
+        assertThat(written.getValue().getContent()).isEqualTo("new text");
+    }
+
+    @Test
+    void updatePostRejectsOtherUsersPosts() {
+        when(postRepository.findById("p1")).thenReturn(Optional.of(new Post("p1", "u1", "text", null, null, null, null)));
+
+        assertThatThrownBy(() -> postService.updatePost("p1", "u2", new Post(), null, null))
+            .isInstanceOf(IllegalArgumentException.class);
+        verify(postRepository, never()).updateContent(any());
+        verify(postRepository, never()).save(any());
+    }
+}
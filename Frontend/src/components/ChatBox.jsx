@@ -1,6 +1,7 @@
 import { useState, useEffect } from 'react';
 import { useAuth } from '../context/AuthContext';
 import { Link } from 'react-router-dom';
+import { subscribeToMessages } from '../services/messageSocket';
 
 const ChatBox = () => {
   const { token } = useAuth();
@@ -24,9 +25,13 @@ const ChatBox = () => {
     };
 
     fetchUnreadCount();
-    // Refresh unread count every minute
+    // Pushed events refresh the badge right away; polling remains the fallback
+    const unsubscribe = subscribeToMessages(token, fetchUnreadCount);
     const interval = setInterval(fetchUnreadCount, 60000);
-    return () => clearInterval(interval);
+    return () => {
+      clearInterval(interval);
+      unsubscribe();
+    };
   }, [token]);
 
   return (
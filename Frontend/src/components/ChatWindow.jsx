@@ -2,6 +2,7 @@ import { useState, useEffect, useRef } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import { useAuth } from '../context/AuthContext';
 import NavBar from './NavBar';
+import { subscribeToMessages, sendTyping } from '../services/messageSocket';
 
 const ChatWindow = () => {
   const { userId } = useParams();
@@ -14,7 +15,24 @@ const ChatWindow = () => {
   const [otherUser, setOtherUser] = useState(null);
   const [editingMessage, setEditingMessage] = useState(null);
   const [sendingMessage, setSendingMessage] = useState(false);
+  const [nextCursor, setNextCursor] = useState(undefined);
+  const [otherOnline, setOtherOnline] = useState(false);
+  const [otherTyping, setOtherTyping] = useState(false);
   const messagesEndRef = useRef(null);
+  const typingTimeoutRef = useRef(null);
+  const otherTypingTimeoutRef = useRef(null);
+
+  // One call marks everything the other user sent up to the given time as read
+  const markConversationRead = async (upTo) => {
+    try {
+      await fetch(
+        `http://localhost:8081/api/messages/conversation/${userId}/read?upTo=${encodeURIComponent(upTo)}`,
+        { method: 'PUT', headers: { Authorization: `Bearer ${token}` } }
+      );
+    } catch (error) {
+      console.error('Error marking conversation read:', error);
+    }
+  };
 
   const fetchMessages = async () => {
     try {
@@ -25,7 +43,18 @@ const ChatWindow = () => {
       });
       if (response.ok) {
         const data = await response.json();
-        setMessages(data.messages.sort((a, b) => new Date(a.timestamp) - new Date(b.timestamp)));
+        const latest = data.messages.sort((a, b) => new Date(a.timestamp) - new Date(b.timestamp));
+        // Keep older pages already loaded; the newest page replaces everything after them
+        setMessages(prev => {
+          if (latest.length === 0) return latest;
+          const oldest = new Date(latest[0].timestamp);
+          return [...prev.filter(m => new Date(m.timestamp) < oldest), ...latest];
+        });
+        setNextCursor(prev => (prev === undefined ? data.nextCursor : prev));
+        const lastReceived = [...latest].reverse().find(m => m.senderId === userId && !m.read);
+        if (lastReceived) {
+          markConversationRead(lastReceived.timestamp);
+        }
         if (data.userDetails && data.userDetails[userId]) {
           setOtherUser(data.userDetails[userId]);
         }
@@ -40,6 +69,24 @@ const ChatWindow = () => {
     }
   };
 
+  const loadEarlier = async () => {
+    if (!nextCursor) return;
+    try {
+      const response = await fetch(
+        `http://localhost:8081/api/messages/conversation/${userId}?before=${encodeURIComponent(nextCursor)}`,
+        { headers: { Authorization: `Bearer ${token}` } }
+      );
+      if (response.ok) {
+        const data = await response.json();
+        const older = data.messages.sort((a, b) => new Date(a.timestamp) - new Date(b.timestamp));
+        setMessages(prev => [...older, ...prev]);
+        setNextCursor(data.nextCursor);
+      }
+    } catch (error) {
+      console.error('Error loading earlier messages:', error);
+    }
+  };
+
   useEffect(() => {
     const fetchUserDetails = async () => {
       try {
@@ -57,14 +104,86 @@ const ChatWindow = () => {
       }
     };
 
+    const fetchPresence = async () => {
+      try {
+        const response = await fetch(`http://localhost:8081/api/messages/presence?ids=${encodeURIComponent(userId)}`, {
+          headers: { Authorization: `Bearer ${token}` },
+        });
+        if (response.ok) {
+          const data = await response.json();
+          setOtherOnline(Boolean(data.presence?.[userId]?.online));
+        }
+      } catch (error) {
+        console.error('Error fetching presence:', error);
+      }
+    };
+
     fetchMessages();
     fetchUserDetails();
+    fetchPresence();
+  }, [userId, token]);
+
+  // Apply pushed events for this conversation
+  useEffect(() => {
+    const unsubscribe = subscribeToMessages(token, (event) => {
+      if (event.type === 'PRESENCE' && event.userId === userId) {
+        setOtherOnline(event.online);
+        return;
+      }
+      if (event.type === 'TYPING' && event.userId === userId) {
+        // Stop showing the indicator if the stop event never arrives
+        clearTimeout(otherTypingTimeoutRef.current);
+        setOtherTyping(event.typing);
+        if (event.typing) {
+          otherTypingTimeoutRef.current = setTimeout(() => setOtherTyping(false), 6000);
+        }
+        return;
+      }
+      const message = event.message;
+      if (message && message.senderId !== userId && message.receiverId !== userId) return;
+      if (event.type === 'MESSAGE_CREATED') {
+        setMessages(prev => (prev.some(m => m.id === message.id) ? prev : [...prev, message]));
+        if (message.senderId === userId) {
+          markConversationRead(message.timestamp);
+        }
+      } else if (event.type === 'MESSAGE_UPDATED') {
+        setMessages(prev => prev.map(m => (m.id === message.id ? message : m)));
+      } else if (event.type === 'MESSAGE_DELETED') {
+        setMessages(prev => prev.filter(m => m.id !== message.id));
+      } else if (event.type === 'MESSAGES_READ' && event.readerId === userId) {
+        const upTo = new Date(event.upTo);
+        setMessages(prev => prev.map(m =>
+          (m.receiverId === userId && new Date(m.timestamp) <= upTo ? { ...m, read: true } : m)));
+      }
+    });
+    return unsubscribe;
   }, [userId, token]);
 
   useEffect(() => {
     scrollToBottom();
   }, [messages]);
 
+  const handleTyping = (value) => {
+    setNewMessage(value);
+    if (!typingTimeoutRef.current) {
+      sendTyping(userId, true);
+    } else {
+      clearTimeout(typingTimeoutRef.current);
+    }
+    typingTimeoutRef.current = setTimeout(() => {
+      typingTimeoutRef.current = null;
+      sendTyping(userId, false);
+    }, 3000);
+  };
+
+  const stopTyping = () => {
+    if (typingTimeoutRef.current) {
+      clearTimeout(typingTimeoutRef.current);
+      typingTimeoutRef.current = null;
+      sendTyping(userId, false);
+    }
+  };
+
   const scrollToBottom = () => {
     messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
   };
@@ -73,6 +192,7 @@ const ChatWindow = () => {
     e.preventDefault();
     if (!newMessage.trim() || sendingMessage) return;
 
+    stopTyping();
     setSendingMessage(true);
     setError(null);
     const messageContent = newMessage.trim();
@@ -251,7 +371,7 @@ const ChatWindow = () => {
                     {otherUser ? `${otherUser.firstName} ${otherUser.lastName}` : 'User'}
                   </h2>
                   <p className="text-sm text-gray-500">
-                    {messages.length} messages
+                    {otherTyping ? 'typing…' : otherOnline ? 'Online' : `${messages.length} messages`}
                   </p>
                 </div>
               </div>
@@ -273,6 +393,16 @@ const ChatWindow = () => {
             )}
 
             <div className="flex-1 overflow-y-auto p-4 space-y-4 bg-gray-50">
+              {nextCursor && (
+                <div className="flex justify-center">
+                  <button
+                    onClick={loadEarlier}
+                    className="text-xs text-gray-600 bg-white px-3 py-1 rounded-full shadow-sm hover:bg-gray-100"
+                  >
+                    Load earlier messages
+                  </button>
+                </div>
+              )}
               {messages.map((message, index) => {
                 const showDate = index === 0 || 
                   formatDate(message.timestamp) !== formatDate(messages[index - 1].timestamp);
@@ -402,7 +532,7 @@ const ChatWindow = () => {
                 <input
                   type="text"
                   value={newMessage}
-                  onChange={(e) => setNewMessage(e.target.value)}
+                  onChange={(e) => handleTyping(e.target.value)}
                   placeholder="Type a message..."
                   className="flex-1 border rounded-lg px-4 py-2 focus:outline-none focus:ring-2 focus:ring-[#22c55e] focus:border-transparent"
                   disabled={sendingMessage}
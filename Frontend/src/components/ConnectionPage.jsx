@@ -10,17 +10,31 @@ const ConnectionsPage = () => {
   const [selectedUser, setSelectedUser] = useState(null);
   const { token, user: currentUser } = useAuth();
 
-  const fetchUsers = async () => {
+  const [nextCursor, setNextCursor] = useState(null);
+
+  // Pages through the people directory; a cursor appends the next page
+  const fetchUsers = async (cursor = null) => {
     try {
-      const res = await axios.get('http://localhost:8081/api/user/debug/all', {
+      const params = new URLSearchParams({ size: '50' });
+      if (cursor) params.set('cursor', cursor);
+      const res = await axios.get(`http://localhost:8081/api/user/directory?${params}`, {
         headers: { Authorization: `Bearer ${token}` },
       });
 
-      const filtered = res.data.filter(u => u.email !== currentUser?.email);
-      setUsers(filtered);
+      const filtered = res.data.content.filter(u => u.id !== currentUser?.id);
+      setUsers(prev => (cursor ? [...prev, ...filtered] : filtered));
+      setNextCursor(res.data.hasNext ? res.data.nextCursor : null);
 
-      const current = res.data.find(u => u.email === currentUser?.email);
-      setFollowing(new Set(current?.following || []));
+      const state = await axios.post(
+        'http://localhost:8081/api/user/follow-state',
+        { userIds: filtered.map(u => u.id) },
+        { headers: { Authorization: `Bearer ${token}` } }
+      );
+      setFollowing(prev => {
+        const next = cursor ? new Set(prev) : new Set();
+        (state.data || []).forEach(id => next.add(id));
+        return next;
+      });
     } catch (err) {
       console.error('Failed to fetch users:', err);
     }
@@ -38,7 +52,11 @@ const ConnectionsPage = () => {
         {},
         { headers: { Authorization: `Bearer ${token}` } }
       );
-      fetchUsers(); // Refresh
+      setFollowing(prev => {
+        const next = new Set(prev);
+        if (isFollowing) next.delete(userId); else next.add(userId);
+        return next;
+      });
     } catch (err) {
       console.error(`Failed to ${isFollowing ? 'unfollow' : 'follow'}:`, err);
     }
@@ -89,12 +107,8 @@ const ConnectionsPage = () => {
                     )}
                     <div>
                       <p className="font-semibold text-gray-800 text-lg">{user.firstName} {user.lastName}</p>
-                      <p className="text-base text-gray-500">{user.email}</p>
                     </div>
                   </div>
-                  {user.about && (
-                    <p className="mt-2 text-base text-gray-700">{user.about}</p>
-                  )}
                   <button
                     onClick={(e) => toggleFollow(user.id, isFollowing, e)}
                     className={`mt-6 w-28 py-2 rounded-lg text-white text-base font-bold shadow-lg focus:outline-none focus:ring-2 focus:ring-green-300 transition-colors duration-200 border-2 ${
@@ -109,6 +123,16 @@ const ConnectionsPage = () => {
             })}
           </div>
         )}
+        {nextCursor && (
+          <div className="mt-6 text-center">
+            <button
+              onClick={() => fetchUsers(nextCursor)}
+              className="px-4 py-2 rounded-lg bg-white shadow text-gray-700 hover:bg-gray-100"
+            >
+              Load more
+            </button>
+          </div>
+        )}
       </div>
     </div>
   );
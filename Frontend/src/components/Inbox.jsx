@@ -2,6 +2,7 @@ import { useState, useEffect } from 'react';
 import { useAuth } from '../context/AuthContext';
 import { Link } from 'react-router-dom';
 import NavBar from './NavBar';
+import { subscribeToMessages } from '../services/messageSocket';
 
 const Inbox = () => {
   const { token, user } = useAuth();
@@ -14,36 +15,73 @@ const Inbox = () => {
   const [userDetails, setUserDetails] = useState({});
   const [userDetailsLoading, setUserDetailsLoading] = useState({});
   const [userDetailsError, setUserDetailsError] = useState({});
+  const [presence, setPresence] = useState({});
+  const [page, setPage] = useState(0);
+  const [hasNext, setHasNext] = useState(false);
+  const [loadingMore, setLoadingMore] = useState(false);
 
-  useEffect(() => {
-    const fetchConversations = async () => {
-      try {
-        const response = await fetch('http://localhost:8081/api/messages/conversations', {
-          headers: {
-            Authorization: `Bearer ${token}`,
-          },
+  // One batch lookup per page; later changes arrive as PRESENCE events
+  const fetchPresence = async (userIds) => {
+    if (userIds.length === 0) return;
+    try {
+      const response = await fetch(
+        `http://localhost:8081/api/messages/presence?ids=${userIds.map(encodeURIComponent).join(',')}`,
+        { headers: { Authorization: `Bearer ${token}` } }
+      );
+      if (response.ok) {
+        const data = await response.json();
+        setPresence(prev => ({ ...prev, ...(data.presence || {}) }));
+      }
+    } catch (error) {
+      console.error('Error fetching presence:', error);
+    }
+  };
+
+  // The inbox is paged, newest conversation first; later pages are appended
+  const fetchConversations = async (pageToLoad) => {
+    try {
+      const response = await fetch(`http://localhost:8081/api/messages/conversations?page=${pageToLoad}&size=20`, {
+        headers: {
+          Authorization: `Bearer ${token}`,
+        },
+      });
+
+      if (response.ok) {
+        const data = await response.json();
+        const pageConversations = data.conversations || [];
+        setConversations(prev => {
+          if (pageToLoad === 0) return pageConversations;
+          // A thread that moved to the top since page 0 may show up again
+          const seen = new Set(prev.map(c => c.id));
+          return [...prev, ...pageConversations.filter(c => !seen.has(c.id))];
         });
+        setPage(pageToLoad);
+        setHasNext(Boolean(data.hasNext));
+        fetchPresence(pageConversations.map(c => c.userId));
 
-        if (response.ok) {
-          const data = await response.json();
-          const uniqueConversations = processConversations(data);
-          setConversations(uniqueConversations);
-          
-          // Store user details from the response
-          if (data.userDetails) {
-            setUserDetails(data.userDetails);
-          }
-        } else {
-          setError('Failed to fetch conversations');
+        // Store user details from the response
+        if (data.userDetails) {
+          setUserDetails(prev => ({ ...prev, ...data.userDetails }));
         }
-      } catch (error) {
-        setError('Error fetching conversations');
-        console.error('Error:', error);
-      } finally {
-        setLoading(false);
+      } else {
+        setError('Failed to fetch conversations');
       }
-    };
+    } catch (error) {
+      setError('Error fetching conversations');
+      console.error('Error:', error);
+    } finally {
+      setLoading(false);
+    }
+  };
 
+  const loadMoreConversations = async () => {
+    if (loadingMore || !hasNext) return;
+    setLoadingMore(true);
+    await fetchConversations(page + 1);
+    setLoadingMore(false);
+  };
+
+  useEffect(() => {
     const fetchUserDetails = async (userId) => {
       if (userDetails[userId] || userDetailsLoading[userId]) return;
       setUserDetailsLoading(prev => ({ ...prev, [userId]: true }));
@@ -70,65 +108,17 @@ const Inbox = () => {
       }
     };
 
-    fetchConversations();
+    fetchConversations(0);
   }, [token]);
 
-  const processConversations = (data) => {
-    const { sentMessages, receivedMessages } = data;
-    const conversationMap = new Map();
-
-    // Process sent messages
-    sentMessages.forEach((message) => {
-      const otherUserId = message.receiverId;
-      if (!conversationMap.has(otherUserId)) {
-        conversationMap.set(otherUserId, {
-          userId: otherUserId,
-          lastMessage: message,
-          unread: false,
-          messageCount: 1,
-          isSent: true
-        });
-      } else if (new Date(message.timestamp) > new Date(conversationMap.get(otherUserId).lastMessage.timestamp)) {
-        conversationMap.set(otherUserId, {
-          userId: otherUserId,
-          lastMessage: message,
-          unread: false,
-          messageCount: conversationMap.get(otherUserId).messageCount + 1,
-          isSent: true
-        });
-      } else {
-        conversationMap.get(otherUserId).messageCount++;
-      }
-    });
-
-    // Process received messages
-    receivedMessages.forEach((message) => {
-      const otherUserId = message.senderId;
-      if (!conversationMap.has(otherUserId)) {
-        conversationMap.set(otherUserId, {
-          userId: otherUserId,
-          lastMessage: message,
-          unread: !message.read,
-          messageCount: 1,
-          isSent: false
-        });
-      } else if (new Date(message.timestamp) > new Date(conversationMap.get(otherUserId).lastMessage.timestamp)) {
-        conversationMap.set(otherUserId, {
-          userId: otherUserId,
-          lastMessage: message,
-          unread: !message.read,
-          messageCount: conversationMap.get(otherUserId).messageCount + 1,
-          isSent: false
-        });
-      } else {
-        conversationMap.get(otherUserId).messageCount++;
+  useEffect(() => {
+    const unsubscribe = subscribeToMessages(token, (event) => {
+      if (event.type === 'PRESENCE') {
+        setPresence(prev => ({ ...prev, [event.userId]: { online: event.online, lastSeen: event.lastSeen } }));
       }
     });
-
-    return Array.from(conversationMap.values()).sort((a, b) => 
-      new Date(b.lastMessage.timestamp) - new Date(a.lastMessage.timestamp)
-    );
-  };
+    return unsubscribe;
+  }, [token]);
 
   const handleSearch = async (e) => {
     e.preventDefault();
@@ -227,7 +217,6 @@ const Inbox = () => {
                           <p className="text-sm font-medium text-gray-900">
                             {result.firstName} {result.lastName}
                           </p>
-                          <p className="text-xs text-gray-500">{result.email}</p>
                         </div>
                       </Link>
                     ))}
@@ -255,7 +244,7 @@ const Inbox = () => {
                         <div className="p-4">
                           <div className="flex items-center justify-between">
                             <div className="flex items-center space-x-3">
-                              <div className="flex-shrink-0">
+                              <div className="flex-shrink-0 relative">
                                 <div className="h-12 w-12 rounded-full bg-gray-200 flex items-center justify-center ring-2 ring-[#22c55e] ring-opacity-20">
                                   {otherUser?.profilePhoto ? (
                                     <img
@@ -267,6 +256,9 @@ const Inbox = () => {
                                     <span className="text-gray-500 text-lg">👤</span>
                                   )}
                                 </div>
+                                {presence[conversation.userId]?.online && (
+                                  <span className="absolute bottom-0 right-0 h-3 w-3 rounded-full bg-[#22c55e] ring-2 ring-white" title="Online" />
+                                )}
                               </div>
                               <div>
                                 <p className="text-sm font-medium text-gray-900">
@@ -295,6 +287,18 @@ const Inbox = () => {
                       </Link>
                     );
                   })}
+                  {hasNext && (
+                    <div className="p-4 text-center">
+                      <button
+                        type="button"
+                        onClick={loadMoreConversations}
+                        disabled={loadingMore}
+                        className="text-sm text-gray-600 bg-white px-4 py-1 rounded-full shadow-sm hover:bg-gray-100 disabled:opacity-50"
+                      >
+                        {loadingMore ? 'Loading…' : 'Load older conversations'}
+                      </button>
+                    </div>
+                  )}
                 </div>
               )}
             </div>
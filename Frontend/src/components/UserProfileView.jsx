@@ -105,7 +105,7 @@ const UserProfileView = ({ user, onClose }) => {
                 <h1 className="text-3xl font-bold text-gray-900 mb-2">
                   {user.firstName} {user.lastName}
                 </h1>
-                <p className="text-gray-600 text-lg mb-4">{user.email}</p>
+                {user.email && <p className="text-gray-600 text-lg mb-4">{user.email}</p>}
                 {user.location && (
                   <p className="text-gray-600 flex items-center justify-center md:justify-start">
                     <svg className="w-5 h-5 mr-2" fill="none" stroke="currentColor" viewBox="0 0 24 24">
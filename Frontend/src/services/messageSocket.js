@@ -0,0 +1,104 @@
+// src/services/messageSocket.js
+// Minimal STOMP 1.2 client over the browser WebSocket for /user/queue/messages.
+// Callers keep their REST polling as a fallback; this only makes updates arrive sooner.
+
+const WS_URL = 'ws://localhost:8081/ws';
+const RECONNECT_DELAY_MS = 5000;
+const NULL = '\u0000';
+
+const frame = (command, headers = {}, body = '') =>
+  command + '\n' +
+  Object.entries(headers).map(([key, value]) => `${key}:${value}`).join('\n') +
+  '\n\n' + body + NULL;
+
+const parseFrame = (data) => {
+  const [head, ...rest] = data.split('\n\n');
+  const [command, ...headerLines] = head.split('\n');
+  const headers = {};
+  headerLines.forEach((line) => {
+    const index = line.indexOf(':');
+    if (index > 0) headers[line.slice(0, index)] = line.slice(index + 1);
+  });
+  return { command, headers, body: rest.join('\n\n').replace(/\u0000$/, '') };
+};
+
+let socket = null;
+let connected = false;
+let currentToken = null;
+let reconnectTimer = null;
+const listeners = new Set();
+
+const connect = () => {
+  if (!currentToken || socket) return;
+  socket = new WebSocket(WS_URL);
+
+  socket.onopen = () => {
+    socket.send(frame('CONNECT', {
+      'accept-version': '1.2',
+      host: 'localhost',
+      'heart-beat': '10000,10000',
+      Authorization: `Bearer ${currentToken}`,
+    }));
+  };
+
+  socket.onmessage = (event) => {
+    // Heart-beats are bare newlines
+    if (event.data === '\n') return;
+    event.data.split(NULL).filter((chunk) => chunk.trim()).forEach((chunk) => {
+      const { command, body } = parseFrame(chunk.replace(/^\n+/, ''));
+      if (command === 'CONNECTED') {
+        connected = true;
+        socket.send(frame('SUBSCRIBE', { id: 'messages', destination: '/user/queue/messages' }));
+      } else if (command === 'MESSAGE') {
+        try {
+          const payload = JSON.parse(body);
+          listeners.forEach((listener) => listener(payload));
+        } catch (error) {
+          console.error('Invalid message event:', error);
+        }
+      } else if (command === 'ERROR') {
+        console.error('Message socket error:', body);
+      }
+    });
+  };
+
+  socket.onclose = () => {
+    socket = null;
+    connected = false;
+    if (listeners.size > 0 && currentToken) {
+      clearTimeout(reconnectTimer);
+      reconnectTimer = setTimeout(connect, RECONNECT_DELAY_MS);
+    }
+  };
+};
+
+/**
+ * Subscribes to message events ({ type, message }, { type: 'MESSAGES_READ', readerId, upTo },
+ * { type: 'PRESENCE', userId, online, lastSeen } or { type: 'TYPING', userId, typing }).
+ * Returns an unsubscribe function; the socket closes when the last listener leaves.
+ */
+export const subscribeToMessages = (token, listener) => {
+  if (token !== currentToken && socket) {
+    socket.close();
+  }
+  currentToken = token;
+  listeners.add(listener);
+  connect();
+
+  return () => {
+    listeners.delete(listener);
+    if (listeners.size === 0 && socket) {
+      clearTimeout(reconnectTimer);
+      socket.close();
+    }
+  };
+};
+
+export const isMessageSocketConnected = () => connected;
+
+// Tells the other participant we started or stopped typing; dropped when offline
+export const sendTyping = (to, typing) => {
+  if (!connected || !socket) return;
+  socket.send(frame('SEND', { destination: '/app/typing', 'content-type': 'application/json' },
+    JSON.stringify({ to, typing })));
+};